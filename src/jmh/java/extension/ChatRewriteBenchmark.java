@@ -0,0 +1,37 @@
+package extension;
+
+import gearth.protocol.HPacket;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// the packet work onReceiveChat does around a translation: copy, read, swap the bubble and the text, through the handler's ChatMessage
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class ChatRewriteBenchmark {
+
+    private HPacket template;
+    private final String translation = "hello everyone, how are you doing today? 😀";
+
+    @Setup
+    public void setup() {
+        template = new HPacket(1446);
+        template.appendInt(7);
+        template.appendString("hola a todos, ¿cómo están hoy? 😀", StandardCharsets.UTF_8);
+        template.appendInt(0);
+        template.appendInt(0);
+        template.appendInt(0);
+        template.appendInt(-1);
+    }
+
+    @Benchmark
+    public HPacket rewrite() {
+        ChatMessage chat = new ChatMessage(new HPacket(template));
+        chat.showAsOriginal();
+        return chat.translated(translation);
+    }
+}
@@ -0,0 +1,85 @@
+package extension;
+
+import gearth.protocol.HPacket;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// parsing a NavigatorSearchResultBlocks packet and writing the translated names back into it
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class NavigatorBenchmark {
+
+    @Param({"20", "200"})
+    public int rooms;
+
+    private HPacket template;
+    private List<String> translations;
+
+    @Setup
+    public void setup() {
+        template = navigatorPacket(rooms);
+        translations = new ArrayList<>();
+        for (String text : new NavigatorResult(new HPacket(template)).getTexts()) {
+            translations.add("translated " + text + " ü");
+        }
+    }
+
+    @Benchmark
+    public List<String> parse() {
+        return new NavigatorResult(new HPacket(template)).getTexts();
+    }
+
+    @Benchmark
+    public HPacket parseAndApply() {
+        return new NavigatorResult(new HPacket(template)).apply(translations);
+    }
+
+    static HPacket navigatorPacket(int rooms) {
+        HPacket packet = new HPacket(2690);
+        packet.appendString("hotel_view");
+        packet.appendString("");
+        packet.appendInt(1); // blocks
+
+        packet.appendString("popular");
+        packet.appendString("");
+        packet.appendInt(0);
+        packet.appendBoolean(false);
+        packet.appendInt(0);
+
+        packet.appendInt(rooms);
+        for (int i = 0; i < rooms; i++) {
+            packet.appendInt(1000 + i);
+            packet.appendString("Habbo Café número " + i, StandardCharsets.UTF_8);
+            packet.appendInt(42);
+            packet.appendString("owner" + i);
+            packet.appendInt(0);
+            packet.appendInt(i % 25);
+            packet.appendInt(25);
+            packet.appendString("Come in and chill with us, trades welcome " + i, StandardCharsets.UTF_8);
+            packet.appendInt(0);
+            packet.appendInt(i);
+            packet.appendInt(0);
+            packet.appendInt(1);
+
+            packet.appendInt(2); // tags
+            packet.appendString("chill");
+            packet.appendString("trade");
+
+            boolean ad = i % 10 == 0;
+            packet.appendInt(ad ? 4 : 0);
+            if (ad) {
+                packet.appendString("Grand opening tonight " + i, StandardCharsets.UTF_8);
+                packet.appendString("free furni for everyone");
+                packet.appendInt(30);
+            }
+        }
+        return packet;
+    }
+}
@@ -0,0 +1,90 @@
+package translation;
+
+import extension.Language;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// lookups that happen for every intercepted line before any network is involved
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    private static final int KEYS = 4096;
+
+    private TranslationCache cache;
+    private CachingTranslator translator;
+    private final List<String> texts = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        cache = new TranslationCache(KEYS * 2, 60, TimeUnit.MINUTES);
+        translator = new CachingTranslator(new Translator() {
+            @Override
+            protected String translate(String text, Language source, Language target) {
+                return text;
+            }
+
+            @Override
+            protected List<String> translate(List<String> texts, Language source, Language target) {
+                return texts;
+            }
+
+            @Override
+            public boolean allowMultiLines() {
+                return true;
+            }
+        }, cache);
+
+        for (int i = 0; i < KEYS; i++) {
+            String text = "hola que tal " + i;
+            texts.add(text);
+            cache.put(translator.getName(), Language.SPANISH, Language.ENGLISH, text, "hello how are you " + i);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = 0;
+
+        int next() {
+            next = (next + 1) & (KEYS - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String cacheHit(Cursor cursor) {
+        return cache.get(translator.getName(), Language.SPANISH, Language.ENGLISH, texts.get(cursor.next()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String cacheMiss(Cursor cursor) {
+        return cache.get(translator.getName(), Language.SPANISH, Language.FRENCH, texts.get(cursor.next()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void cachePut(Cursor cursor) {
+        int i = cursor.next();
+        cache.restore(translator.getName(), Language.SPANISH, Language.ENGLISH, texts.get(i), "hello how are you " + i);
+    }
+
+    @Benchmark
+    public CompletableFuture<String> cachedTranslateAsync(Cursor cursor) {
+        return translator.translateAsync(texts.get(cursor.next()), Language.SPANISH, Language.ENGLISH);
+    }
+
+    @Benchmark
+    public LanguageDetector.Detection detectLanguage(Cursor cursor) {
+        return LanguageDetector.detect(texts.get(cursor.next()));
+    }
+}
@@ -0,0 +1,78 @@
+package translation.translators;
+
+import org.openjdk.jmh.annotations.*;
+import translation.TranslationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// request encoding and response decoding of the providers, without any network
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+    @Param({"1", "25"})
+    public int texts;
+
+    private List<String> input;
+    private byte[] deeplResponse;
+    private byte[] microsoftResponse;
+
+    @Setup
+    public void setup() {
+        input = new ArrayList<>();
+        StringBuilder deepl = new StringBuilder("{\"translations\":[");
+        StringBuilder microsoft = new StringBuilder("[");
+        for (int i = 0; i < texts; i++) {
+            String text = "Bienvenue dans ma chambre numéro " + i + ", on échange des meubles & des badges !";
+            input.add(text);
+
+            if (i > 0) {
+                deepl.append(',');
+                microsoft.append(',');
+            }
+            deepl.append("{\"detected_source_language\":\"FR\",\"text\":\"Welcome to my room number ").append(i).append(", we trade furni & badges!\"}");
+            microsoft.append("{\"translations\":[{\"text\":\"Welcome to my room number ").append(i).append(", we trade furni & badges!\",\"to\":\"en\"}]}");
+        }
+        deeplResponse = deepl.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        microsoftResponse = microsoft.append("]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String deeplForm() throws TranslationException {
+        StringBuilder form = new StringBuilder();
+        DeepLTranslator.append(form, "auth_key", "00000000-0000-0000-0000-000000000000:fx");
+        for (String text : input) {
+            DeepLTranslator.append(form, "text", text);
+        }
+        DeepLTranslator.append(form, "target_lang", "EN");
+        DeepLTranslator.append(form, "source_lang", "FR");
+        return form.toString();
+    }
+
+    @Benchmark
+    public int deeplEncodedSize() {
+        int size = 0;
+        for (String text : input) {
+            size += DeepLTranslator.encodedSize(text);
+        }
+        return size;
+    }
+
+    @Benchmark
+    public List<String> deeplDecode() throws IOException {
+        return ResponseDecoder.deepl(new ByteArrayInputStream(deeplResponse), texts);
+    }
+
+    @Benchmark
+    public List<String> microsoftDecode() throws IOException {
+        return ResponseDecoder.microsoft(new ByteArrayInputStream(microsoftResponse), texts);
+    }
+}
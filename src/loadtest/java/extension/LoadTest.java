@@ -0,0 +1,364 @@
+package extension;
+
+import gearth.protocol.HMessage;
+import gearth.protocol.HPacket;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import org.json.JSONObject;
+import translation.LatencyHistogram;
+import translation.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// replays chat and navigator packets through the real handlers against a MockTranslationServer
+// mvn -P loadtest compile exec:exec -Dloadtest.args="--api=deepl --rate=40 --duration=30 --latency=150 --errors=0.02"
+// needs a display, the handlers read their options from the JavaFX controls
+public class LoadTest {
+
+    private static final int CHAT = 1;
+    private static final int WHISPER = 2;
+    private static final int SHOUT = 3;
+    private static final int OUT_CHAT = 10;
+    private static final int NAVIGATOR = 20;
+
+    private static final String[] CORPUS = {
+            "hola a todos, que tal estais hoy?",
+            "alguien quiere tradear conmigo?",
+            "bonjour tout le monde, ça va ?",
+            "je cherche des meubles rares",
+            "hallo zusammen, wie geht es euch?",
+            "ich bin gleich wieder da",
+            "ciao a tutti, come state?",
+            "olá pessoal, tudo bem com vocês?",
+            "merhaba arkadaşlar nasılsınız",
+            "moi kaikki, mitä kuuluu?",
+            "hoi allemaal, hoe gaat het met jullie?",
+            "hello everyone, how are you doing today?",
+            "lol", "123", ":sit", "https://example.com/room",
+    };
+
+    private final Map<String, String> options;
+    private final Map<Integer, Pending> incoming = new ConcurrentHashMap<>();
+    private final Map<HPacket, Pending> navigator = Collections.synchronizedMap(new IdentityHashMap<>());
+    // by text, the sequencer may send a copy of the packet; identical lines in flight are matched in order
+    private final Map<String, ArrayDeque<Pending>> outgoing = new HashMap<>(); // guarded by itself
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final AtomicInteger passedThrough = new AtomicInteger();
+    private final AtomicInteger delivered = new AtomicInteger();
+
+    private LoadTest(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) continue;
+            int eq = arg.indexOf('=');
+            options.put(eq == -1 ? arg.substring(2) : arg.substring(2, eq), eq == -1 ? "true" : arg.substring(eq + 1));
+        }
+        new LoadTest(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        MockTranslationServer server = new MockTranslationServer(
+                longOption("latency", 150), longOption("jitter", 100),
+                Double.parseDouble(options.getOrDefault("errors", "0")), (int) longOption("rps", 0));
+        server.start();
+
+        File dir = Files.createTempDirectory("translator-loadtest").toFile();
+        writeSettings(dir, server.getUrl());
+        Harness extension = startExtension(dir);
+
+        List<String> corpus = options.containsKey("corpus")
+                ? Files.readAllLines(new File(options.get("corpus")).toPath(), StandardCharsets.UTF_8)
+                : Arrays.asList(CORPUS);
+        int rate = (int) longOption("rate", 40);
+        int total = rate * (int) longOption("duration", 30);
+        int navigatorEvery = (int) longOption("navigatorEvery", 50);
+
+        System.out.printf("replaying %d packets at %d/s against %s (%s)%n", total, rate, server.getUrl(), options.getOrDefault("api", "deepl"));
+
+        // one thread calls the handlers, like G-Earth does
+        ScheduledExecutorService intercept = Executors.newSingleThreadScheduledExecutor();
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch replayed = new CountDownLatch(1);
+        long start = System.nanoTime();
+        ScheduledFuture<?> replay = intercept.scheduleAtFixedRate(() -> {
+            int id = next.incrementAndGet();
+            if (id > total) {
+                replayed.countDown();
+                return;
+            }
+            replayOne(extension, id, corpus.get(id % corpus.size()), navigatorEvery);
+        }, 0, TimeUnit.SECONDS.toNanos(1) / rate, TimeUnit.NANOSECONDS);
+
+        replayed.await();
+        replay.cancel(false);
+        long deadline = System.currentTimeMillis() + longOption("drainMs", 10000);
+        while (pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        intercept.shutdownNow();
+
+        report(total, seconds);
+        System.out.println(server.report());
+        System.out.println();
+        System.out.println(Metrics.report());
+        server.stop();
+    }
+
+    private void replayOne(Harness extension, int id, String text, int navigatorEvery) {
+        if (navigatorEvery > 0 && id % navigatorEvery == 0) {
+            HPacket packet = navigatorPacket(id, 30);
+            track(navigator, packet, "navigator");
+            send(extension, packet, HMessage.Direction.TOCLIENT, () -> untrack(navigator, packet), extension::onNavigatorResult);
+            return;
+        }
+
+        switch (id % 10) {
+            case 0: case 1: {
+                HPacket packet = new HPacket(OUT_CHAT);
+                packet.appendString(text, StandardCharsets.UTF_8);
+                packet.appendInt(0);
+                packet.appendInt(-1);
+                trackOutgoing(text);
+                send(extension, packet, HMessage.Direction.TOSERVER, () -> untrackOutgoing(text), m -> extension.onSendChat(m, false));
+                break;
+            }
+            default: {
+                int header = id % 10 == 2 ? WHISPER : id % 10 == 3 ? SHOUT : CHAT;
+                // the user index doubles as message id, it survives the packet copy the handler sends
+                HPacket packet = new HPacket(header);
+                packet.appendInt(id);
+                packet.appendString(text, StandardCharsets.UTF_8);
+                packet.appendInt(0);
+                packet.appendInt(0);
+                packet.appendInt(0);
+                packet.appendInt(-1);
+                String kind = header == WHISPER ? "whisper" : header == SHOUT ? "shout" : "chat";
+                track(incoming, id, kind);
+                send(extension, packet, HMessage.Direction.TOCLIENT, () -> untrack(incoming, id), extension::onReceiveChat);
+            }
+        }
+    }
+
+    private void send(Harness extension, HPacket packet, HMessage.Direction direction,
+                      Supplier<Pending> untrack, Consumer<HMessage> handler) {
+        HMessage message = new HMessage(packet, direction, 0);
+        handler.accept(message);
+        if (!message.isBlocked()) {
+            // went through untouched right away
+            Pending p = untrack.get();
+            if (p != null) {
+                passedThrough.incrementAndGet();
+                record(p);
+            }
+        }
+    }
+
+    private <K> void track(Map<K, Pending> pending, K key, String kind) {
+        pending.put(key, new Pending(kind, System.nanoTime()));
+    }
+
+    private <K> Pending untrack(Map<K, Pending> pending, K key) {
+        return pending.remove(key);
+    }
+
+    private void trackOutgoing(String text) {
+        synchronized (outgoing) {
+            outgoing.computeIfAbsent(text, t -> new ArrayDeque<>()).addLast(new Pending("out chat", System.nanoTime()));
+        }
+    }
+
+    private Pending untrackOutgoing(String text) {
+        synchronized (outgoing) {
+            ArrayDeque<Pending> pending = outgoing.get(text);
+            if (pending == null) return null;
+            Pending p = pending.pollFirst();
+            if (pending.isEmpty()) outgoing.remove(text);
+            return p;
+        }
+    }
+
+    private void onSentToServer(HPacket packet) {
+        // the mock translates to "[lang] text", the original line is what's left after the marker
+        packet.resetReadIndex();
+        String text = packet.readString(StandardCharsets.UTF_8);
+        if (text.startsWith("[")) {
+            int end = text.indexOf("] ");
+            if (end != -1) text = text.substring(end + 2);
+        }
+        delivered(untrackOutgoing(text));
+    }
+
+    private void onSentToClient(HPacket packet) {
+        Pending p = untrack(navigator, packet);
+        if (p == null) {
+            packet.resetReadIndex();
+            p = untrack(incoming, packet.readInteger());
+        }
+        delivered(p);
+    }
+
+    private void delivered(Pending p) {
+        if (p != null) {
+            delivered.incrementAndGet();
+            record(p);
+        }
+    }
+
+    private int pendingCount() {
+        int count = incoming.size() + navigator.size();
+        synchronized (outgoing) {
+            for (ArrayDeque<Pending> pending : outgoing.values()) {
+                count += pending.size();
+            }
+        }
+        return count;
+    }
+
+    private void record(Pending p) {
+        latencies.computeIfAbsent(p.kind, k -> new LatencyHistogram()).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - p.start));
+    }
+
+    private void report(int total, double seconds) {
+        int lost = pendingCount();
+        System.out.printf("%n%d packets in %.1fs: %.1f packets/s, %d delivered by the extension, %d passed through, %d never sent%n",
+                total, seconds, (total - lost) / seconds, delivered.get(), passedThrough.get(), lost);
+        System.out.printf("%-10s %7s %7s %7s %7s %7s%n", "kind", "count", "mean", "p50", "p90", "p99");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(latencies).entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            System.out.printf("%-10s %7d %7.1f %7d %7d %7d%n", entry.getKey(), h.getCount(), h.getMean(),
+                    h.percentile(50), h.percentile(90), h.percentile(99));
+        }
+        System.out.println("(percentiles are histogram bucket bounds in ms)");
+        System.out.println();
+    }
+
+    private void writeSettings(File dir, String url) throws IOException {
+        String api = options.getOrDefault("api", "deepl");
+        JSONObject settings = new JSONObject();
+        settings.put("api", api);
+        settings.put("deeplKey", "mock:fx");
+        settings.put("deeplUrl", url);
+        settings.put("msKey", "mock");
+        settings.put("microsoftUrl", url);
+        settings.put("argosUrl", url);
+        settings.put("myLang", "ENGLISH");
+        settings.put("srcLang", "SPANISH");
+        settings.put("showOriginal", false);
+        settings.put("trNav", true);
+        settings.put("persistTranslations", false);
+        settings.put("fallbackApis", options.getOrDefault("fallbacks", ""));
+        // anything else is passed on as a setting, e.g. --batchWindowMs=40 --workers=8
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            String value = option.getValue();
+            if (value.matches("-?\\d+")) settings.put(option.getKey(), Integer.parseInt(value));
+            else if (value.equals("true") || value.equals("false")) settings.put(option.getKey(), Boolean.parseBoolean(value));
+        }
+
+        File cache = new File(dir, "cache");
+        cache.mkdirs();
+        Files.write(new File(cache, "cache.json").toPath(), settings.toString(2).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Harness startExtension(File dir) throws Exception {
+        CompletableFuture<Harness> started = new CompletableFuture<>();
+        Platform.startup(() -> {
+            try {
+                Harness harness = new Harness(dir);
+                FXMLLoader loader = new FXMLLoader(TranslatorExtension.class.getResource("translator.fxml"));
+                loader.setControllerFactory(type -> harness);
+                loader.load();
+                harness.startStop(null);
+                started.complete(harness);
+            } catch (Throwable e) {
+                started.completeExceptionally(e);
+            }
+        });
+        return started.get(30, TimeUnit.SECONDS);
+    }
+
+    private long longOption(String name, long def) {
+        String value = options.get(name);
+        return value == null ? def : Long.parseLong(value);
+    }
+
+    static HPacket navigatorPacket(int id, int rooms) {
+        HPacket packet = new HPacket(NAVIGATOR);
+        packet.appendString("hotel_view");
+        packet.appendString("");
+        packet.appendInt(1);
+
+        packet.appendString("popular");
+        packet.appendString("");
+        packet.appendInt(0);
+        packet.appendBoolean(false);
+        packet.appendInt(0);
+
+        packet.appendInt(rooms);
+        for (int i = 0; i < rooms; i++) {
+            packet.appendInt(i);
+            packet.appendString(CORPUS[(id + i) % CORPUS.length], StandardCharsets.UTF_8);
+            packet.appendInt(1);
+            packet.appendString("owner");
+            packet.appendInt(0);
+            packet.appendInt(1);
+            packet.appendInt(25);
+            packet.appendString(CORPUS[(id + i + 1) % CORPUS.length], StandardCharsets.UTF_8);
+            packet.appendInt(0);
+            packet.appendInt(0);
+            packet.appendInt(0);
+            packet.appendInt(0);
+            packet.appendInt(0); // tags
+            packet.appendInt(0); // multiUse
+        }
+        return packet;
+    }
+
+    private static class Pending {
+        private final String kind;
+        private final long start;
+
+        private Pending(String kind, long start) {
+            this.kind = kind;
+            this.start = start;
+        }
+    }
+
+    // the extension without a G-Earth connection, whatever it sends ends up in onSentToClient/onSentToServer
+    private class Harness extends TranslatorExtension {
+        private Harness(File dir) {
+            settingsDir = dir;
+        }
+
+        @Override
+        public boolean sendToClient(HPacket packet) {
+            onSentToClient(packet);
+            return true;
+        }
+
+        @Override
+        public boolean sendToServer(HPacket packet) {
+            onSentToServer(packet);
+            return true;
+        }
+
+        // nobody in the replayed room is us
+        @Override
+        boolean userIsYou(int index) {
+            return false;
+        }
+    }
+}
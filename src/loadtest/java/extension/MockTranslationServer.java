@@ -0,0 +1,193 @@
+package extension;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// local stand-in for the DeepL, Microsoft and LibreTranslate apis, "translates" by prefixing the target language
+public class MockTranslationServer {
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double errorRate;
+    private final int requestsPerSecond; // 0 for no limit
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong texts = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    private long windowSecond = 0; // guarded by this
+    private int windowCount = 0;
+
+    public MockTranslationServer(long latencyMillis, long jitterMillis, double errorRate, int requestsPerSecond) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorRate = errorRate;
+        this.requestsPerSecond = requestsPerSecond;
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "mock-translator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/v2/translate", this::deepl);
+        server.createContext("/translate", exchange -> {
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null && query.contains("api-version")) microsoft(exchange);
+            else libreTranslate(exchange);
+        });
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String report() {
+        return String.format("mock server: %d requests, %d texts, %d rate limited, %d failed",
+                requests.get(), texts.get(), rateLimited.get(), failed.get());
+    }
+
+    // auth_key=...&text=...&text=...&target_lang=EN
+    private void deepl(HttpExchange exchange) throws IOException {
+        List<String> input = new ArrayList<>();
+        String target = "";
+        for (String pair : read(exchange).split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq == -1) continue;
+            String key = URLDecoder.decode(pair.substring(0, eq), "UTF-8");
+            String value = URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+            if (key.equals("text")) input.add(value);
+            else if (key.equals("target_lang")) target = value;
+        }
+        if (!admit(exchange, input.size())) return;
+
+        JSONArray translations = new JSONArray();
+        for (String text : input) {
+            translations.put(new JSONObject().put("detected_source_language", "XX").put("text", translate(text, target)));
+        }
+        respond(exchange, 200, new JSONObject().put("translations", translations).toString());
+    }
+
+    // [{"Text": "..."}] -> [{"translations": [{"text": "...", "to": "en"}]}]
+    private void microsoft(HttpExchange exchange) throws IOException {
+        String target = "";
+        for (String pair : exchange.getRequestURI().getRawQuery().split("&")) {
+            if (pair.startsWith("to=")) target = URLDecoder.decode(pair.substring(3), "UTF-8");
+        }
+        JSONArray input = new JSONArray(read(exchange));
+        if (!admit(exchange, input.length())) return;
+
+        JSONArray response = new JSONArray();
+        for (int i = 0; i < input.length(); i++) {
+            String text = input.getJSONObject(i).getString("Text");
+            JSONObject translation = new JSONObject().put("text", translate(text, target)).put("to", target);
+            response.put(new JSONObject().put("translations", new JSONArray().put(translation)));
+        }
+        respond(exchange, 200, response.toString());
+    }
+
+    // {"q": [...], "source": "es", "target": "en"} -> {"translatedText": [...]}
+    private void libreTranslate(HttpExchange exchange) throws IOException {
+        JSONObject request = new JSONObject(read(exchange));
+        String target = request.optString("target");
+        Object q = request.get("q");
+        JSONArray input = q instanceof JSONArray ? (JSONArray) q : new JSONArray().put(q);
+        if (!admit(exchange, input.length())) return;
+
+        JSONArray translated = new JSONArray();
+        for (int i = 0; i < input.length(); i++) {
+            translated.put(translate(input.getString(i), target));
+        }
+        respond(exchange, 200, new JSONObject().put("translatedText", q instanceof JSONArray ? translated : translated.get(0)).toString());
+    }
+
+    private String translate(String text, String target) {
+        return "[" + target.toLowerCase() + "] " + text;
+    }
+
+    // applies the rate limit, latency and error rate, false if the request was already answered with an error
+    private boolean admit(HttpExchange exchange, int count) throws IOException {
+        requests.incrementAndGet();
+
+        if (requestsPerSecond > 0) {
+            boolean limited;
+            synchronized (this) {
+                long second = System.currentTimeMillis() / 1000;
+                if (second != windowSecond) {
+                    windowSecond = second;
+                    windowCount = 0;
+                }
+                limited = ++windowCount > requestsPerSecond;
+            }
+            if (limited) {
+                rateLimited.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                respond(exchange, 429, "{\"message\":\"Too many requests\"}");
+                return false;
+            }
+        }
+
+        long delay = latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+            failed.incrementAndGet();
+            respond(exchange, 503, "{\"message\":\"Service unavailable\"}");
+            return false;
+        }
+        texts.addAndGet(count);
+        return true;
+    }
+
+    private static String read(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buf = new byte[4096];
+            int r;
+            while ((r = in.read(buf)) != -1) out.write(buf, 0, r);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
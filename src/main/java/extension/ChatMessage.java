@@ -0,0 +1,65 @@
+package extension;
+
+import gearth.protocol.HPacket;
+
+import java.nio.charset.StandardCharsets;
+
+// the translatable part of an incoming Chat packet, the translation goes into a copy so the original can still be shown
+public class ChatMessage {
+
+    private static final int WIRED_BUBBLE = 34;
+    private static final int WIRED_ORIGINAL_BUBBLE = 33;
+    private static final int ORIGINAL_BUBBLE = 30;
+
+    private final HPacket packet;
+    private final HPacket copy;
+    private int userIndex;
+    private String text;
+    private int bubbleIndex;
+    private int chatBubble;
+
+    public ChatMessage(HPacket packet) {
+        this.packet = packet;
+        this.copy = new HPacket(packet);
+        parse();
+    }
+
+    private void parse() {
+        packet.resetReadIndex();
+        userIndex = packet.readInteger();
+        text = packet.readString(StandardCharsets.UTF_8);
+        packet.readInteger();
+        bubbleIndex = packet.getReadIndex();
+        chatBubble = packet.readInteger();
+    }
+
+    public HPacket getPacket() {
+        return packet;
+    }
+
+    public int getUserIndex() {
+        return userIndex;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isWired() {
+        return chatBubble == WIRED_BUBBLE;
+    }
+
+    // marks the original with its own bubble, for when it is shown next to the translation
+    public HPacket showAsOriginal() {
+        packet.replaceInt(bubbleIndex, isWired() ? WIRED_ORIGINAL_BUBBLE : ORIGINAL_BUBBLE);
+        return packet;
+    }
+
+    // the message with the translated text and the bubble it came with
+    public HPacket translated(String translation) {
+        copy.resetReadIndex();
+        copy.readInteger();
+        copy.replaceString(copy.getReadIndex(), translation, StandardCharsets.UTF_8);
+        return copy;
+    }
+}
@@ -0,0 +1,69 @@
+package extension;
+
+import translation.TranslationExecutor;
+import translation.Tracer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// how long a blocked packet may wait for its translation before the original is forwarded untouched
+public class LatencyBudget {
+
+    public enum Category { CHAT, DM, ROOM_INFO, NAVIGATOR }
+
+    private final Map<Category, Long> budgets = new EnumMap<>(Category.class);
+
+    public void set(Category category, long millis) {
+        budgets.put(category, millis);
+    }
+
+    // onExpire runs on the timer thread if nobody claimed the guard within the budget
+    public Guard start(Category category, long trace, Runnable onExpire) {
+        Guard guard = new Guard(trace, onExpire);
+        long budget = budgets.getOrDefault(category, 0L);
+        if (budget > 0) {
+            guard.timer = TranslationExecutor.schedule(guard::expire, budget);
+        }
+        return guard;
+    }
+
+    public static class Guard {
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        private final long trace;
+        private final Runnable onExpire;
+        private volatile ScheduledFuture<?> timer = null;
+
+        private Guard(long trace, Runnable onExpire) {
+            this.trace = trace;
+            this.onExpire = onExpire;
+        }
+
+        // true for whoever gets here first, the translation or the budget
+        public boolean claim() {
+            if (!claimed.compareAndSet(false, true)) {
+                // the original is long gone, but the trace should still show when the translation really finished
+                Tracer.finish(trace, Tracer.Event.LATE);
+                return false;
+            }
+            ScheduledFuture<?> timer = this.timer;
+            if (timer != null) timer.cancel(false);
+            return true;
+        }
+
+        // gives up on the translation right away, e.g. when it failed
+        public void passThrough() {
+            if (claim()) forward();
+        }
+
+        private void expire() {
+            if (claimed.compareAndSet(false, true)) forward();
+        }
+
+        private void forward() {
+            onExpire.run();
+            Tracer.finish(trace, Tracer.Event.PASS_THROUGH);
+        }
+    }
+}
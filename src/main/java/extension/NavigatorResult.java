@@ -0,0 +1,111 @@
+package extension;
+
+import gearth.protocol.HPacket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// the translatable strings of a NavigatorSearchResultBlocks packet, room names and room ad texts
+public class NavigatorResult {
+
+    private final HPacket packet;
+    private final List<Integer> indexes = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    private final List<String> descriptions = new ArrayList<>();
+
+    public NavigatorResult(HPacket packet) {
+        this.packet = packet;
+        parse();
+    }
+
+    private void parse() {
+        packet.resetReadIndex();
+        packet.readString();
+        packet.readString();
+
+        int blocks = packet.readInteger();
+        for (int i = 0; i < blocks; i++) {
+            packet.readString();
+
+            packet.readString();
+//            indexes.add(packet.getReadIndex());
+//            texts.add(packet.readString(StandardCharsets.UTF_8));
+
+            packet.readInteger();
+            packet.readBoolean();
+            packet.readInteger();
+
+            int rooms = packet.readInteger();
+            for (int j = 0; j < rooms; j++) {
+                // ty wiredspast
+                //        self.flatId, self.roomName, self.ownerId, self.ownerName, self.doorMode
+                //        , self.userCount, self.maxUserCount, self.description, self.tradeMode,
+                //        self.score, self.ranking, self.categoryId = packet.read('isisiiisiiii')
+
+                packet.readInteger();
+
+                indexes.add(packet.getReadIndex());
+                texts.add(packet.readString(StandardCharsets.UTF_8));
+
+                packet.readInteger();
+                packet.readString();
+                packet.readInteger();
+                packet.readInteger();
+                packet.readInteger();
+                descriptions.add(packet.readString(StandardCharsets.UTF_8));    // dont translate description
+                packet.readInteger();
+                packet.readInteger();
+                packet.readInteger();
+                packet.readInteger();
+
+                int tags = packet.readInteger();
+                for (int k = 0; k < tags; k++) {
+                    packet.readString();
+                }
+
+                int multiUse = packet.readInteger();
+                if ((multiUse & 1) > 0) // official room
+                    packet.readString();
+
+                if ((multiUse & 2) > 0) { // group
+                    packet.readInteger();
+                    packet.readString();
+                    packet.readString();
+                }
+
+                if ((multiUse & 4) > 0) { // room ad
+                    indexes.add(packet.getReadIndex());
+                    texts.add(packet.readString(StandardCharsets.UTF_8));
+
+                    packet.readString();
+                    packet.readInteger();
+                }
+            }
+        }
+    }
+
+    public HPacket getPacket() {
+        return packet;
+    }
+
+    public List<String> getTexts() {
+        return texts;
+    }
+
+    // not translated in the packet, only used to warm the cache for the room info
+    public List<String> getDescriptions() {
+        return descriptions;
+    }
+
+    // null entries keep their original text, replaced back to front so the earlier indexes stay valid
+    public HPacket apply(List<String> translations) {
+        for (int i = translations.size() - 1; i >= 0; i--) {
+            String translation = translations.get(i);
+            if (translation != null) {
+                packet.replaceString(indexes.get(i), translation, StandardCharsets.UTF_8);
+            }
+        }
+        return packet;
+    }
+}
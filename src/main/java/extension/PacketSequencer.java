@@ -0,0 +1,135 @@
+package extension;
+
+import gearth.protocol.HPacket;
+import translation.TranslationExecutor;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+// releases translated packets in the order they were intercepted
+// a ticket that isn't completed within maxWait stops blocking the ones behind it
+public class PacketSequencer {
+
+    // what happens to a late packet whose ticket had no original to stand in for it
+    public enum LatePolicy {
+        DELIVER, // send a late packet as soon as it's ready, out of order
+        DROP     // forget about it
+    }
+
+    private final Consumer<HPacket> sender;
+    private final long maxWaitMillis;
+    private final LatePolicy latePolicy;
+
+    private final ArrayDeque<Ticket> queue = new ArrayDeque<>(); // guarded by this
+    private final ArrayDeque<HPacket> outbox = new ArrayDeque<>(); // guarded by this
+    private boolean sending = false; // guarded by this
+
+    public PacketSequencer(Consumer<HPacket> sender, long maxWaitMillis, LatePolicy latePolicy) {
+        this.sender = sender;
+        this.maxWaitMillis = maxWaitMillis;
+        this.latePolicy = latePolicy;
+    }
+
+    public Ticket next() {
+        return next(null);
+    }
+
+    // original is sent in this ticket's slot if it expires, so a slow translation can't lose the message
+    public synchronized Ticket next(HPacket original) {
+        Ticket ticket = new Ticket(System.currentTimeMillis() + maxWaitMillis, original);
+        queue.addLast(ticket);
+        TranslationExecutor.schedule(this::drain, maxWaitMillis);
+        return ticket;
+    }
+
+    private void drain() {
+        synchronized (this) {
+            release();
+        }
+        send();
+    }
+
+    // moves everything that may go out now to the outbox, in order
+    private void release() {
+        long now = System.currentTimeMillis();
+        while (!queue.isEmpty()) {
+            Ticket head = queue.peekFirst();
+            if (head.done) {
+                queue.pollFirst();
+                if (head.packet != null) outbox.addLast(head.packet);
+            }
+            else if (now >= head.deadline) {
+                queue.pollFirst();
+                head.expired = true;
+                if (head.original != null) outbox.addLast(head.original);
+            }
+            else {
+                break;
+            }
+        }
+    }
+
+    // the socket write happens outside the lock, one thread at a time so the order is kept
+    private void send() {
+        synchronized (this) {
+            if (sending) return; // whoever is sending picks up what we added
+            sending = true;
+        }
+        while (true) {
+            HPacket packet;
+            synchronized (this) {
+                packet = outbox.pollFirst();
+                if (packet == null) {
+                    sending = false;
+                    return;
+                }
+            }
+            try {
+                sender.accept(packet);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    sending = false;
+                }
+                throw e;
+            }
+        }
+    }
+
+    public class Ticket {
+        private final long deadline;
+        private final HPacket original;
+        private boolean done = false;    // guarded by the sequencer
+        private boolean expired = false; // guarded by the sequencer
+        private HPacket packet = null;
+
+        private Ticket(long deadline, HPacket original) {
+            this.deadline = deadline;
+            this.original = original;
+        }
+
+        // false if the packet came too late and won't be sent, e.g. because the original already went out in its place
+        public boolean complete(HPacket packet) {
+            boolean sent = true;
+            synchronized (PacketSequencer.this) {
+                if (done) return false;
+                done = true;
+
+                if (expired) {
+                    sent = original == null && latePolicy == LatePolicy.DELIVER;
+                    if (sent && packet != null) outbox.addLast(packet);
+                }
+                else {
+                    this.packet = packet;
+                    release();
+                }
+            }
+            send();
+            return sent;
+        }
+
+        // nothing to send for this slot, but it still has to release the ones behind it
+        public void skip() {
+            complete(null);
+        }
+    }
+}
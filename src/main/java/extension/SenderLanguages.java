@@ -0,0 +1,55 @@
+package extension;
+
+import translation.SkipFilter;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// languages detected per user id, so short lines that can't be detected on their own still get the right source
+public class SenderLanguages {
+
+    private static final int MAX_USERS = 1000;
+    private static final int MIN_SAMPLES = 2;
+    private static final double MIN_SHARE = 0.6;
+
+    private final Map<Integer, Votes> users = new LinkedHashMap<Integer, Votes>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Votes> eldest) {
+            return size() > MAX_USERS;
+        }
+    };
+
+    // language of this line from this user, falls back to what they usually write in, null if unknown
+    public synchronized Language observe(int userId, String text) {
+        Language detected = SkipFilter.detect(text);
+        Votes votes = users.computeIfAbsent(userId, id -> new Votes());
+        if (detected != null) {
+            votes.add(detected);
+            return detected;
+        }
+        return votes.known();
+    }
+
+    public synchronized void clear() {
+        users.clear();
+    }
+
+    private static class Votes {
+        private final Map<Language, Integer> counts = new EnumMap<>(Language.class);
+        private int samples = 0;
+
+        private void add(Language language) {
+            counts.merge(language, 1, Integer::sum);
+            samples++;
+        }
+
+        private Language known() {
+            if (samples < MIN_SAMPLES) return null;
+            for (Map.Entry<Language, Integer> entry : counts.entrySet()) {
+                if (entry.getValue() >= samples * MIN_SHARE) return entry.getKey();
+            }
+            return null;
+        }
+    }
+}
@@ -1,43 +1,159 @@
 package extension;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+// saves are debounced and written on a background thread, the file is replaced atomically and the previous one kept as a backup
 public class SettingsManager {
 
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    private final File cacheDir;
     private final File file;
+    private final File temp;
+    private final File backup;
+    private final long debounceMillis;
+    private final ScheduledExecutorService writer;
+
+    private JSONObject pending = null; // guarded by this
+    private ScheduledFuture<?> scheduled = null; // guarded by this
+    private long firstPending = 0; // guarded by this
+    private volatile boolean fileIntact = true;
 
     public SettingsManager(File baseDir) {
-        File cacheDir = new File(baseDir, "cache");
+        this(baseDir, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public SettingsManager(File baseDir, long debounceMillis) {
+        cacheDir = new File(baseDir, "cache");
         if (!cacheDir.exists()) cacheDir.mkdirs();
         this.file = new File(cacheDir, "cache.json");
+        this.temp = new File(cacheDir, "cache.json.tmp");
+        this.backup = new File(cacheDir, "cache.json.bak");
+        this.debounceMillis = Math.max(0, debounceMillis);
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "translator-settings");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        writer = executor;
+
+        // the writer is a daemon, don't lose the last change when the extension is closed
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "translator-settings-flush"));
     }
 
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+    // falls back to the backup if cache.json is missing or was cut off mid-write
     public Map<String, Object> load() {
         Map<String, Object> map = new HashMap<>();
-        if (!file.exists()) return map;
-        try (FileInputStream fis = new FileInputStream(file)) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] buf = new byte[4096];
-            int r;
-            while ((r = fis.read(buf)) != -1) baos.write(buf, 0, r);
-            String text = new String(baos.toByteArray(), StandardCharsets.UTF_8);
-            JSONObject json = new JSONObject(text);
-            for (String key : json.keySet()) {
-                map.put(key, json.get(key));
+        JSONObject json = null;
+        if (file.exists()) {
+            try {
+                json = read(file);
+            } catch (IOException | JSONException e) {
+                fileIntact = false;
+                System.err.println("Could not read " + file + ", trying " + backup.getName() + ": " + e);
+            }
+        }
+        if (json == null && backup.exists()) {
+            try {
+                json = read(backup);
+            } catch (IOException | JSONException e) {
+                System.err.println("Could not read " + backup + ", starting with default settings: " + e);
             }
-        } catch (Exception ignore) { }
+        }
+        if (json == null) return map;
+
+        for (String key : json.keySet()) {
+            map.put(key, json.get(key));
+        }
         return map;
     }
 
+    // snapshots the map right away, the write happens once no save came in for the debounce window
     public void save(Map<String, Object> map) {
         JSONObject json = new JSONObject(map);
-        try (FileOutputStream fos = new FileOutputStream(file)) {
-            fos.write(json.toString(2).getBytes(StandardCharsets.UTF_8));
-        } catch (IOException ignore) { }
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (pending == null) firstPending = now;
+            pending = json;
+
+            // keep pushing the write back while the user is typing, but never further than a few windows
+            if (scheduled != null && now - firstPending < 4 * debounceMillis) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+            if (scheduled == null) {
+                scheduled = writer.schedule(this::writePending, debounceMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // writes a pending save now, on the calling thread
+    public void flush() {
+        synchronized (this) {
+            if (scheduled != null) scheduled.cancel(false);
+        }
+        writePending();
+    }
+
+    private void writePending() {
+        // the writer thread and a flush can both get here, whoever takes the snapshot last also writes last
+        synchronized (file) {
+            JSONObject json;
+            synchronized (this) {
+                json = pending;
+                pending = null;
+                scheduled = null;
+            }
+            if (json == null) return;
+
+            try {
+                write(json.toString(2).getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("Could not save " + file + ": " + e);
+            }
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        try (FileOutputStream fos = new FileOutputStream(temp)) {
+            fos.write(bytes);
+            fos.getFD().sync();
+        }
+
+        // a corrupt cache.json must not replace the last good backup
+        if (file.exists() && fileIntact) {
+            Files.copy(file.toPath(), backup.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        fileIntact = true;
+    }
+
+    private static JSONObject read(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        return new JSONObject(new String(bytes, StandardCharsets.UTF_8));
     }
 }
@@ -5,18 +5,35 @@ import gearth.extensions.ExtensionInfo;
 import gearth.extensions.parsers.HEntity;
 import gearth.protocol.HMessage;
 import gearth.protocol.HPacket;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.event.ActionEvent;
 import javafx.scene.control.*;
 import javafx.scene.layout.Pane;
-import misc.MaybeConsumer;
+import javafx.util.Duration;
+import translation.Futures;
+import translation.Metrics;
+import translation.PartialTranslationException;
+import translation.Prefetcher;
+import translation.PriorityScheduler;
+import translation.SkipFilter;
 import translation.TranslationException;
+import translation.TranslationExecutor;
+import translation.TranslationStore;
 import translation.Translator;
 import translation.TranslatorFactory;
+import translation.Tracer;
+import translation.translators.ArgosOpenTechTranslator;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 //todo:
 // * group names
@@ -35,6 +52,9 @@ public class TranslatorExtension extends ExtensionForm {
     public TextField apiMicrosoftRegion;
     public Pane apiDeepLInfo;
     public TextField apiDeepLKey;
+    public Pane apiArgosInfo;
+    public TextField apiArgosUrl;
+    public TextField apiArgosKey;
     public RadioButton rdArgos;
     public RadioButton rdMicrosoft;
     public RadioButton rdDeepL;
@@ -42,6 +62,9 @@ public class TranslatorExtension extends ExtensionForm {
 
     private volatile int userId = -1;
     private HashMap<Integer, HEntity> users = new HashMap<>();
+    private final SenderLanguages senderLanguages = new SenderLanguages();
+    private PriorityScheduler scheduler;
+    private Prefetcher prefetcher;
 
     public ComboBox<Language> myLang;
     public ComboBox<Language> sourceLang;
@@ -59,19 +82,75 @@ public class TranslatorExtension extends ExtensionForm {
 
     public Button isActiveBtn;
 
+    public Tab statsTab;
+    public TextArea statsText;
+
     private volatile boolean isActive = false;
 
 
+    File settingsDir = new File(".");
     private SettingsManager settingsManager;
     private Map<String, Object> settings = new ConcurrentHashMap<>();
 
+    private PacketSequencer incomingChat;
+    private PacketSequencer outgoingChat;
+    private final LatencyBudget latencyBudget = new LatencyBudget();
+
     public void initialize() {
         myLang.getItems().addAll(Language.values());
         sourceLang.getItems().addAll(Language.values());
 
-        settingsManager = new SettingsManager(new File("."));
+        settingsManager = new SettingsManager(settingsDir);
         settings.putAll(settingsManager.load());
 
+        TranslationExecutor.configure(
+                getIntSetting("workers", 4),
+                getIntSetting("queueSize", 256),
+                getBooleanSetting("virtualThreads", false),
+                getEnumSetting("rejectionPolicy", TranslationExecutor.RejectionPolicy.FAIL));
+        TranslatorFactory.configureCache(getIntSetting("cacheSize", 5000), getIntSetting("cacheTtlMinutes", 60));
+        TranslatorFactory.configureBatching(getIntSetting("batchWindowMs", 20), getIntSetting("batchMaxSize", 25));
+        TranslatorFactory.configureResilience(
+                Arrays.asList(((String) settings.getOrDefault("fallbackApis", "deepl,microsoft")).split(",")),
+                getIntSetting("maxRetries", 2),
+                getIntSetting("breakerThreshold", 5),
+                getIntSetting("breakerCooldownMs", 30000));
+        TranslatorFactory.configureHedging(getBooleanSetting("hedge", false), (String) settings.getOrDefault("hedgeApi", "microsoft"), getIntSetting("hedgePercentile", 90));
+        if (getBooleanSetting("persistTranslations", true)) {
+            TranslatorFactory.getCache().attach(new TranslationStore(settingsManager.getCacheDir(), getIntSetting("storeSize", 100000)));
+        }
+
+        int workers = getIntSetting("workers", 4);
+        scheduler = new PriorityScheduler(workers, getIntSetting("queueSize", 256), getIntSetting("priorityAgingMs", 2000));
+        scheduler.setLimit(PriorityScheduler.Priority.ROOM_INFO, getIntSetting("limitRoomInfo", Math.max(1, workers / 2)));
+        scheduler.setLimit(PriorityScheduler.Priority.NAVIGATOR, getIntSetting("limitNavigator", 1));
+        scheduler.setLimit(PriorityScheduler.Priority.PREFETCH, getIntSetting("limitPrefetch", 1));
+
+        Metrics.setQueueDepth(scheduler::getWaiting);
+        Tracer.configure(getBooleanSetting("trace", true), getIntSetting("traceSize", 512), getIntSetting("traceThresholdMs", 5000), settingsManager.getCacheDir());
+
+        prefetcher = new Prefetcher(() -> TranslatorFactory.get(this), scheduler.executor(PriorityScheduler.Priority.PREFETCH),
+                getIntSetting("prefetchIdleMs", 2000),
+                getIntSetting("prefetchQuotaChars", 50000),
+                TimeUnit.MINUTES.toMillis(getIntSetting("prefetchQuotaMinutes", 60)));
+
+        int orderMaxWait = getIntSetting("orderMaxWaitMs", 1500);
+        PacketSequencer.LatePolicy latePolicy = getEnumSetting("lateTranslations", PacketSequencer.LatePolicy.DELIVER);
+        incomingChat = new PacketSequencer(this::sendToClient, orderMaxWait, latePolicy);
+        outgoingChat = new PacketSequencer(this::sendToServer, orderMaxWait, latePolicy);
+
+        latencyBudget.set(LatencyBudget.Category.CHAT, getIntSetting("budgetChatMs", 2500));
+        latencyBudget.set(LatencyBudget.Category.DM, getIntSetting("budgetDmMs", 3000));
+        latencyBudget.set(LatencyBudget.Category.ROOM_INFO, getIntSetting("budgetRoomInfoMs", 2000));
+        latencyBudget.set(LatencyBudget.Category.NAVIGATOR, getIntSetting("budgetNavigatorMs", 750));
+
+        // only refreshed while someone is looking at it
+        Timeline statsRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+            if (statsTab.isSelected()) statsText.setText(Metrics.report());
+        }));
+        statsRefresh.setCycleCount(Animation.INDEFINITE);
+        statsRefresh.play();
+
         myLang.getSelectionModel().selectFirst();
         sourceLang.getSelectionModel().selectFirst();
 
@@ -92,10 +171,12 @@ public class TranslatorExtension extends ExtensionForm {
         apiMicrosoftKey.textProperty().addListener((o,ov,nv) -> { settings.put("msKey", nv); persist(); });
         apiMicrosoftRegion.textProperty().addListener((o,ov,nv) -> { settings.put("msRegion", nv); persist(); });
         apiDeepLKey.textProperty().addListener((o,ov,nv) -> { settings.put("deeplKey", nv); persist(); });
+        apiArgosUrl.textProperty().addListener((o,ov,nv) -> { settings.put("argosUrl", nv); persist(); });
+        apiArgosKey.textProperty().addListener((o,ov,nv) -> { settings.put("argosKey", nv); persist(); });
 
         rdMicrosoft.selectedProperty().addListener((obs,old,val) -> { if (val) { showMicrosoft(); settings.put("api", "microsoft"); persist(); } });
         rdDeepL.selectedProperty().addListener((obs,old,val) -> { if (val) { showDeepL(); settings.put("api", "deepl"); persist(); } });
-        rdArgos.selectedProperty().addListener((obs,old,val) -> { if (val) { hideAllApiPanels(); settings.put("api", "argos"); persist(); } });
+        rdArgos.selectedProperty().addListener((obs,old,val) -> { if (val) { showArgos(); settings.put("api", "argos"); persist(); } });
 
         applySavedState();
     }
@@ -109,6 +190,8 @@ public class TranslatorExtension extends ExtensionForm {
         apiMicrosoftKey.setText((String) settings.getOrDefault("msKey", ""));
         apiMicrosoftRegion.setText((String) settings.getOrDefault("msRegion", "global"));
         apiDeepLKey.setText((String) settings.getOrDefault("deeplKey", ""));
+        apiArgosUrl.setText((String) settings.getOrDefault("argosUrl", ArgosOpenTechTranslator.DEFAULT_URL));
+        apiArgosKey.setText((String) settings.getOrDefault("argosKey", ""));
 
         setIfPresent(showOriginal, "showOriginal");
         setIfPresent(translateIncoming, "trIn");
@@ -123,7 +206,7 @@ public class TranslatorExtension extends ExtensionForm {
         switch (api) {
             case "microsoft": rdMicrosoft.setSelected(true); break;
             case "deepl": rdDeepL.setSelected(true); break;
-            default: rdArgos.setSelected(true); break;
+            default: rdArgos.setSelected(true); showArgos(); break;
         }
     }
 
@@ -134,14 +217,23 @@ public class TranslatorExtension extends ExtensionForm {
     private void hideAllApiPanels() {
         apiMicrosoftInfo.setVisible(false); apiMicrosoftInfo.setManaged(false); apiMicrosoftInfo.setDisable(true);
         apiDeepLInfo.setVisible(false); apiDeepLInfo.setManaged(false); apiDeepLInfo.setDisable(true);
+        apiArgosInfo.setVisible(false); apiArgosInfo.setManaged(false); apiArgosInfo.setDisable(true);
     }
     private void showMicrosoft() { hideAllApiPanels(); apiMicrosoftInfo.setVisible(true); apiMicrosoftInfo.setManaged(true); apiMicrosoftInfo.setDisable(false); }
     private void showDeepL() { hideAllApiPanels(); apiDeepLInfo.setVisible(true); apiDeepLInfo.setManaged(true); apiDeepLInfo.setDisable(false); }
+    private void showArgos() { hideAllApiPanels(); apiArgosInfo.setVisible(true); apiArgosInfo.setManaged(true); apiArgosInfo.setDisable(false); }
 
     private void addCheckboxListener(CheckBox box, String key) { box.selectedProperty().addListener((o,ov,nv) -> { settings.put(key, nv); persist(); }); }
     private void setIfPresent(CheckBox box, String key) { Object v = settings.get(key); if (v instanceof Boolean) box.setSelected((Boolean)v); }
     private void persist() { settingsManager.save(settings); }
 
+    private int getIntSetting(String key, int def) { Object v = settings.get(key); return v instanceof Number ? ((Number) v).intValue() : def; }
+    private boolean getBooleanSetting(String key, boolean def) { Object v = settings.get(key); return v instanceof Boolean ? (Boolean) v : def; }
+    private <E extends Enum<E>> E getEnumSetting(String key, E def) {
+        Object v = settings.get(key);
+        try { return v instanceof String ? Enum.valueOf(def.getDeclaringClass(), (String) v) : def; } catch (IllegalArgumentException e) { return def; }
+    }
+
     public String getDeepLKey() {
         return apiDeepLKey.getText();
     }
@@ -153,9 +245,9 @@ public class TranslatorExtension extends ExtensionForm {
         intercept(HMessage.Direction.TOCLIENT, "Whisper", this::onReceiveChat);
         intercept(HMessage.Direction.TOCLIENT, "Shout", this::onReceiveChat);
 
-        intercept(HMessage.Direction.TOSERVER, "Chat", this::onSendChat);
-        intercept(HMessage.Direction.TOSERVER, "Whisper", this::onSendChat);
-        intercept(HMessage.Direction.TOSERVER, "Shout", this::onSendChat);
+        intercept(HMessage.Direction.TOSERVER, "Chat", m -> onSendChat(m, false));
+        intercept(HMessage.Direction.TOSERVER, "Whisper", m -> onSendChat(m, true));
+        intercept(HMessage.Direction.TOSERVER, "Shout", m -> onSendChat(m, false));
 
         intercept(HMessage.Direction.TOCLIENT, "RoomReady", this::onRoomReady);
         intercept(HMessage.Direction.TOCLIENT, "UserObject", this::onInfoRetrieve);
@@ -173,93 +265,70 @@ public class TranslatorExtension extends ExtensionForm {
         sendToServer(new HPacket("InfoRetrieve", HMessage.Direction.TOSERVER));
     }
 
-    private void onNavigatorResult(HMessage hMessage) {
+    void onNavigatorResult(HMessage hMessage) {
         Translator translator = TranslatorFactory.get(this);
-        if (isActive && translateNavigator.isSelected() && translator.allowMultiLines()) {
-            hMessage.setBlocked(true);
-
-            List<Integer> translationIndexes = new ArrayList<>();
-            List<String> translations = new ArrayList<>();
-
-            HPacket packet = hMessage.getPacket();
-            packet.readString();
-            packet.readString();
-
-            int blocks = packet.readInteger();
-            for (int i = 0; i < blocks; i++) {
-                packet.readString();
-
-                packet.readString();
-//                translationIndexes.add(packet.getReadIndex());
-//                translations.add(packet.readString(StandardCharsets.UTF_8));
-
-                packet.readInteger();
-                packet.readBoolean();
-                packet.readInteger();
-
-                int rooms = packet.readInteger();
-                for (int j = 0; j < rooms; j++) {
-                    // ty wiredspast
-                    //        self.flatId, self.roomName, self.ownerId, self.ownerName, self.doorMode
-                    //        , self.userCount, self.maxUserCount, self.description, self.tradeMode,
-                    //        self.score, self.ranking, self.categoryId = packet.read('isisiiisiiii')
-
-                    packet.readInteger();
-
-                    translationIndexes.add(packet.getReadIndex());
-                    translations.add(packet.readString(StandardCharsets.UTF_8));
-
-                    packet.readInteger();
-                    packet.readString();
-                    packet.readInteger();
-                    packet.readInteger();
-                    packet.readInteger();
-                    packet.readString();    // dont translate description
-                    packet.readInteger();
-                    packet.readInteger();
-                    packet.readInteger();
-                    packet.readInteger();
-
-                    int tags = packet.readInteger();
-                    for (int k = 0; k < tags; k++) {
-                        packet.readString();
-                    }
-
-                    int multiUse = packet.readInteger();
-                    if ((multiUse & 1) > 0) // official room
-                        packet.readString();
-
-                    if ((multiUse & 2) > 0) { // group
-                        packet.readInteger();
-                        packet.readString();
-                        packet.readString();
-                    }
-
-                    if ((multiUse & 4) > 0) { // room ad
-                        translationIndexes.add(packet.getReadIndex());
-                        translations.add(packet.readString(StandardCharsets.UTF_8));
+        boolean prefetchRooms = isActive && translateRoomInfo.isSelected() && prefetchEnabled() && translator.allowMultiLines();
+        boolean translate = isActive && translateNavigator.isSelected() && translator.allowMultiLines();
+        if (!prefetchRooms && !translate) return;
+
+        NavigatorResult result = new NavigatorResult(hMessage.getPacket());
+        Language source = getSourceLanguage();
+        Language target = getMyLanguage();
+
+        // room info for any of these rooms is then answered from the cache
+        if (prefetchRooms) {
+            prefetcher.prefetch(result.getTexts(), source, target);
+            prefetcher.prefetch(result.getDescriptions(), source, target);
+        }
 
-                        packet.readString();
-                        packet.readInteger();
-                    }
+        if (translate) {
+
+            // names translated earlier are filled in from the cache, only the rest goes out
+            List<String> ready = new ArrayList<>();
+            List<Integer> missIndexes = new ArrayList<>();
+            List<String> misses = new ArrayList<>();
+            for (String text : result.getTexts()) {
+                String cached = translator.peek(text, source, target);
+                if (cached == null) {
+                    missIndexes.add(ready.size());
+                    misses.add(text);
                 }
+                ready.add(cached);
+            }
+
+            if (misses.isEmpty()) {
+                result.apply(ready);
+                return;
             }
 
-            translator.translate(translations, getSourceLanguage(), getMyLanguage(), new MaybeConsumer<List<String>, TranslationException>() {
-                @Override
-                public void except(TranslationException exception) {
+            hMessage.setBlocked(true);
+            prefetcher.onInteractive();
+
+            // on the deadline the packet goes out with what is ready, the request keeps going and fills the cache for next time
+            long trace = Tracer.begin("onNavigatorResult");
+            LatencyBudget.Guard guard = latencyBudget.start(LatencyBudget.Category.NAVIGATOR, trace, () -> sendToClient(result.apply(ready)));
+            Metrics.Stats stats = Metrics.handler("onNavigatorResult");
+            long start = stats.start();
+            Tracer.call(trace, () -> translator.translateAsync(misses, source, target, scheduler.executor(PriorityScheduler.Priority.NAVIGATOR))).whenComplete((strings, error) -> {
+                stats.end(start, error != null);
+                if (error != null) {
+                    TranslationException exception = Futures.unwrap(error);
                     System.out.println(exception.getReason());
+                    if (!(exception instanceof PartialTranslationException)) {
+                        guard.passThrough();
+                        return;
+                    }
+                    strings = ((PartialTranslationException) exception).getResults();
                 }
 
-                @Override
-                public void accept(List<String> strings) {
-                    for (int i = strings.size() - 1; i >= 0; i--) {
-                        int index = translationIndexes.get(i);
-                        String replacedText = strings.get(i);
-                        packet.replaceString(index, replacedText);
-                    }
-                    sendToClient(packet);
+                if (!guard.claim()) return;
+                List<String> translations = new ArrayList<>(ready);
+                for (int i = 0; i < strings.size(); i++) {
+                    translations.set(missIndexes.get(i), strings.get(i));
                 }
+                Tracer.record(trace, Tracer.Event.REWRITE);
+                sendToClient(result.apply(translations));
+                Tracer.finish(trace, Tracer.Event.RESEND);
             });
 
         }
@@ -269,22 +338,33 @@ public class TranslatorExtension extends ExtensionForm {
     if (isActive && translateChatIn.isSelected()) {
             HPacket packet = hMessage.getPacket();
 
-            packet.readInteger(); // sender
+            int senderId = packet.readInteger();
             String text = packet.readString(StandardCharsets.UTF_8);
 
+            Language source = sourceOf(senderId, text);
+            if (skipLocally(text, source, getMyLanguage())) return;
+
             hMessage.setBlocked(true);
 
+            prefetcher.onInteractive();
             Translator translator = TranslatorFactory.get(this);
-            translator.translate(text, getSourceLanguage(), getMyLanguage(), new MaybeConsumer<String, TranslationException>() {
-                @Override
-                public void except(TranslationException exception) {
-                    System.out.println(exception.getReason());
+            HPacket original = new HPacket(packet);
+            long trace = Tracer.begin("onReceiveDMOrInvitation");
+            LatencyBudget.Guard guard = latencyBudget.start(LatencyBudget.Category.DM, trace, () -> sendToClient(original));
+            Metrics.Stats stats = Metrics.handler("onReceiveDMOrInvitation");
+            long start = stats.start();
+            Tracer.call(trace, () -> translator.translateAsync(text, source, getMyLanguage(), scheduler.executor(PriorityScheduler.Priority.INCOMING))).whenComplete((s, error) -> {
+                stats.end(start, error != null);
+                if (error != null) {
+                    System.out.println(Futures.unwrap(error).getReason());
+                    guard.passThrough();
                 }
-
-                @Override
-                public void accept(String s) {
+                // a late translation shows up as a second message after the original
+                else if (guard.claim() || lateFollowUp()) {
+                    Tracer.record(trace, Tracer.Event.REWRITE);
                     packet.replaceString(10, s, StandardCharsets.UTF_8);
                     sendToClient(packet);
+                    Tracer.finish(trace, Tracer.Event.RESEND);
                 }
             });
 
@@ -300,17 +380,23 @@ public class TranslatorExtension extends ExtensionForm {
 
             hMessage.setBlocked(true);
 
-            Translator translator = TranslatorFactory.get(this);
-            translator.translate(text, getMyLanguage(), getSourceLanguage(), new MaybeConsumer<String, TranslationException>() {
-                @Override
-                public void except(TranslationException exception) {
-                    System.out.println(exception.getReason());
+            prefetcher.onInteractive();
+            Translator translator = TranslatorFactory.getOutgoing(this);
+            long trace = Tracer.begin("onSendDM");
+            LatencyBudget.Guard guard = latencyBudget.start(LatencyBudget.Category.DM, trace, () -> sendToServer(packet));
+            Metrics.Stats stats = Metrics.handler("onSendDM");
+            long start = stats.start();
+            Tracer.call(trace, () -> translator.translateAsync(text, getMyLanguage(), getSourceLanguage(), scheduler.executor(PriorityScheduler.Priority.OUTGOING))).whenComplete((s, error) -> {
+                stats.end(start, error != null);
+                if (error != null) {
+                    System.out.println(Futures.unwrap(error).getReason());
+                    guard.passThrough();
                 }
-
-                @Override
-                public void accept(String s) {
+                else if (guard.claim()) {
+                    Tracer.record(trace, Tracer.Event.REWRITE);
                     packet.replaceString(10, s, StandardCharsets.UTF_8);
                     sendToServer(packet);
+                    Tracer.finish(trace, Tracer.Event.RESEND);
                 }
             });
 
@@ -327,17 +413,23 @@ public class TranslatorExtension extends ExtensionForm {
 
             hMessage.setBlocked(true);
 
+            prefetcher.onInteractive();
             Translator translator = TranslatorFactory.get(this);
-            translator.translate(text, getMyLanguage(), getSourceLanguage(), new MaybeConsumer<String, TranslationException>() {
-                @Override
-                public void except(TranslationException exception) {
-                    System.out.println(exception.getReason());
+            long trace = Tracer.begin("onSendInvitation");
+            LatencyBudget.Guard guard = latencyBudget.start(LatencyBudget.Category.DM, trace, () -> sendToServer(packet));
+            Metrics.Stats stats = Metrics.handler("onSendInvitation");
+            long start = stats.start();
+            Tracer.call(trace, () -> translator.translateAsync(text, getMyLanguage(), getSourceLanguage(), scheduler.executor(PriorityScheduler.Priority.OUTGOING))).whenComplete((s, error) -> {
+                stats.end(start, error != null);
+                if (error != null) {
+                    System.out.println(Futures.unwrap(error).getReason());
+                    guard.passThrough();
                 }
-
-                @Override
-                public void accept(String s) {
+                else if (guard.claim()) {
+                    Tracer.record(trace, Tracer.Event.REWRITE);
                     packet.replaceString(textIndexInPacket, s, StandardCharsets.UTF_8);
                     sendToServer(packet);
+                    Tracer.finish(trace, Tracer.Event.RESEND);
                 }
             });
 
@@ -366,18 +458,34 @@ public class TranslatorExtension extends ExtensionForm {
             int roomDescPacketIndex = packet.getReadIndex();
             String originalDesc = packet.readString(StandardCharsets.UTF_8);
 
-            TranslatorFactory.get(this).translate(Arrays.asList(originalRoomName, originalDesc), getSourceLanguage(), getMyLanguage(), new MaybeConsumer<List<String>, TranslationException>() {
-                @Override
-                public void except(TranslationException exception) {
-                    System.out.println(exception.getReason());
-                }
-
-                @Override
-                public void accept(List<String> s) {
-                    packet.replaceString(roomDescPacketIndex, s.get(1), StandardCharsets.UTF_8);
-                    packet.replaceString(roomNamePacketIndex, s.get(0), StandardCharsets.UTF_8);
-                    sendToClient(packet);
-                }
+            prefetcher.onInteractive();
+            Translator translator = TranslatorFactory.get(this);
+            long trace = Tracer.begin("onRoomInfo");
+            LatencyBudget.Guard guard = latencyBudget.start(LatencyBudget.Category.ROOM_INFO, trace, () -> sendToClient(packet));
+
+            // separate requests so a cached name doesn't wait on the description, the batcher still sends the misses together
+            Metrics.Stats stats = Metrics.handler("onRoomInfo");
+            long start = stats.start();
+            AtomicBoolean failed = new AtomicBoolean(false); // either half falling back to the original counts as an error
+            CompletableFuture<String> roomName = Tracer.call(trace, () -> translator.translateAsync(originalRoomName, getSourceLanguage(), getMyLanguage(), scheduler.executor(PriorityScheduler.Priority.ROOM_INFO)))
+                    .exceptionally(error -> {
+                        failed.set(true);
+                        return orOriginal(error, originalRoomName);
+                    });
+            CompletableFuture<String> roomDesc = Tracer.call(trace, () -> translator.translateAsync(originalDesc, getSourceLanguage(), getMyLanguage(), scheduler.executor(PriorityScheduler.Priority.ROOM_INFO)))
+                    .exceptionally(error -> {
+                        failed.set(true);
+                        return orOriginal(error, originalDesc);
+                    });
+
+            roomName.thenAcceptBoth(roomDesc, (name, desc) -> {
+                stats.end(start, failed.get());
+                if (!guard.claim()) return;
+                Tracer.record(trace, Tracer.Event.REWRITE);
+                packet.replaceString(roomDescPacketIndex, desc, StandardCharsets.UTF_8);
+                packet.replaceString(roomNamePacketIndex, name, StandardCharsets.UTF_8);
+                sendToClient(packet);
+                Tracer.finish(trace, Tracer.Event.RESEND);
             });
         }
     }
@@ -400,13 +508,43 @@ public class TranslatorExtension extends ExtensionForm {
         }
     }
 
-    private boolean userIsYou(int index) {
+    boolean userIsYou(int index) {
         return !users.containsKey(index) || (userId != -1 && users.get(index).getId() == userId);
     }
 
     @Override
     protected void onEndConnection() {
         userId = -1;
+        senderLanguages.clear();
+        prefetcher.clear();
+        scheduler.clear();
+        TranslationExecutor.shutdown();
+    }
+
+    private static String orOriginal(Throwable error, String original) {
+        System.out.println(Futures.unwrap(error).getReason());
+        return original;
+    }
+
+    // cheap local check that spares the round trip for lines that don't need translating
+    private boolean skipLocally(String text, Language source, Language target) {
+        return getBooleanSetting("skipFilter", true) && (source == target || SkipFilter.shouldSkip(text, target));
+    }
+
+    // detected language of the line or its sender, the selected source language when neither is known
+    private Language sourceOf(Integer senderId, String text) {
+        if (!getBooleanSetting("detectSource", true)) return getSourceLanguage();
+
+        Language detected = senderId == null ? SkipFilter.detect(text) : senderLanguages.observe(senderId, text);
+        return detected == null ? getSourceLanguage() : detected;
+    }
+
+    private boolean prefetchEnabled() {
+        return getBooleanSetting("prefetch", false);
+    }
+
+    private boolean lateFollowUp() {
+        return getBooleanSetting("lateFollowUp", true);
     }
 
     private Language getMyLanguage() {
@@ -417,72 +555,112 @@ public class TranslatorExtension extends ExtensionForm {
         return sourceLang.getValue();
     }
 
-    private void onSendChat(HMessage hMessage) {
-        boolean isWhisper = getPacketInfoManager().getPacketInfoFromHeaderId(HMessage.Direction.TOSERVER, hMessage.getPacket().headerId()).getName().equals("Whisper");
-
+    void onSendChat(HMessage hMessage, boolean isWhisper) {
         if (isActive && translateOutgoing.isSelected()) {
             HPacket packet = hMessage.getPacket();
             String text = packet.readString(StandardCharsets.UTF_8);
-
-            if (showOriginal.isSelected()) {
-                sendToClient(new HPacket("Whisper", HMessage.Direction.TOCLIENT, -1, text, 0, 30, 0, -1));
-            }
+            String receiver = isWhisper ? text.split(" ")[0] : null;
+            String message = isWhisper ? text.substring(receiver.length() + 1) : text;
 
             hMessage.setBlocked(true);
+            // a copy, the translation is written into packet
+            PacketSequencer.Ticket ticket = outgoingChat.next(new HPacket(packet));
 
-            Translator translator = TranslatorFactory.get(this);
+            // still goes through the sequencer so it can't overtake a message that is being translated
+            if (skipLocally(message, getMyLanguage(), getSourceLanguage())) {
+                ticket.complete(packet);
+                return;
+            }
 
-            String receiver = isWhisper ? text.split(" ")[0] : null;
-            text = isWhisper ? text.substring(receiver.length() + 1) : text;
+            if (showOriginal.isSelected()) {
+                sendToClient(new HPacket("Whisper", HMessage.Direction.TOCLIENT, -1, text, 0, 30, 0, -1));
+            }
 
-            translator.translate(text, getMyLanguage(), getSourceLanguage(), new MaybeConsumer<String, TranslationException>() {
-                @Override
-                public void except(TranslationException exception) {
-                    System.out.println(exception.getReason());
+            prefetcher.onInteractive();
+            Translator translator = TranslatorFactory.getOutgoing(this);
+            long trace = Tracer.begin("onSendChat");
+            LatencyBudget.Guard guard = latencyBudget.start(LatencyBudget.Category.CHAT, trace, () -> ticket.complete(packet));
+
+            Metrics.Stats stats = Metrics.handler("onSendChat");
+            long start = stats.start();
+            Tracer.call(trace, () -> translator.translateAsync(message, getMyLanguage(), getSourceLanguage(), scheduler.executor(PriorityScheduler.Priority.OUTGOING))).whenComplete((s, error) -> {
+                stats.end(start, error != null);
+                if (error != null) {
+                    System.out.println(Futures.unwrap(error).getReason());
+                    guard.passThrough();
                 }
-
-                @Override
-                public void accept(String s) {
+                else if (guard.claim()) {
+                    Tracer.record(trace, Tracer.Event.REWRITE);
                     packet.replaceString(6, isWhisper ? receiver + " " + s : s, StandardCharsets.UTF_8);
-                    sendToServer(packet);
+                    // the sequencer may have sent the original already, then the translation is dropped
+                    boolean sent = ticket.complete(packet);
+                    Tracer.finish(trace, sent ? Tracer.Event.RESEND : Tracer.Event.PASS_THROUGH);
                 }
             });
         }
     }
 
-    private void onReceiveChat(HMessage hMessage) {
+    void onReceiveChat(HMessage hMessage) {
         if (isActive && translateIncoming.isSelected()) {
             HPacket packet = hMessage.getPacket();
-            HPacket copy = new HPacket(packet);
+            ChatMessage chat = new ChatMessage(packet);
 
-            int userIndex = packet.readInteger();
-            String text = packet.readString(StandardCharsets.UTF_8);
-            packet.readInteger();
-            int chatBubble = packet.readInteger();
+            int userIndex = chat.getUserIndex();
+            String text = chat.getText();
 
-            boolean isWiredMessage = chatBubble == 34;
+            boolean isWiredMessage = chat.isWired();
             if ((isWiredMessage && !translateWired.isSelected()) || (!isWiredMessage && userIsYou(userIndex))) return;
 
-            if (showOriginal.isSelected()) {
-                packet.replaceInt(packet.getReadIndex() - 4, isWiredMessage ? 33 : 30);
+            HEntity sender = isWiredMessage ? null : users.get(userIndex);
+            Language source = sourceOf(sender == null ? null : sender.getId(), text);
+            if (skipLocally(text, source, getMyLanguage())) {
+                hMessage.setBlocked(true);
+                incomingChat.next().complete(packet);
+                return;
+            }
+
+            boolean originalShown = showOriginal.isSelected();
+            if (originalShown) {
+                chat.showAsOriginal();
             }
             else {
                 hMessage.setBlocked(true);
             }
 
+            prefetcher.onInteractive();
+            if (prefetchEnabled()) prefetcher.seen(text, source, getMyLanguage());
             Translator translator = TranslatorFactory.get(this);
-            translator.translate(text, getSourceLanguage(), getMyLanguage(), new MaybeConsumer<String, TranslationException>() {
-                @Override
-                public void except(TranslationException exception) {
-                    System.out.println(exception.getReason());
+            PacketSequencer.Ticket ticket = incomingChat.next(originalShown ? null : packet);
+            long trace = Tracer.begin("onReceiveChat");
+            LatencyBudget.Guard guard = latencyBudget.start(LatencyBudget.Category.CHAT, trace, () -> {
+                if (originalShown) ticket.skip();
+                else ticket.complete(packet);
+            });
+            Metrics.Stats stats = Metrics.handler("onReceiveChat");
+            long start = stats.start();
+            Tracer.call(trace, () -> translator.translateAsync(text, source, getMyLanguage(), scheduler.executor(PriorityScheduler.Priority.INCOMING))).whenComplete((s, error) -> {
+                stats.end(start, error != null);
+                if (error != null) {
+                    System.out.println(Futures.unwrap(error).getReason());
+                    guard.passThrough();
+                    return;
                 }
 
-                @Override
-                public void accept(String s) {
-                    copy.resetReadIndex();
-                    copy.readInteger();
-                    copy.replaceString(copy.getReadIndex(), s, StandardCharsets.UTF_8);
-                    sendToClient(copy);
+                Tracer.record(trace, Tracer.Event.REWRITE);
+                HPacket copy = chat.translated(s);
+
+                boolean claimed = guard.claim();
+                if (claimed && ticket.complete(copy)) {
+                    Tracer.finish(trace, Tracer.Event.RESEND);
+                }
+                // only when the original went through untranslated, forwarded by the budget or in its sequencer slot
+                // with the original shown the ticket has nothing to stand in, a refused copy is the late policy dropping it
+                else if ((!claimed || !originalShown) && lateFollowUp()) {
+                    sendToClient(originalShown ? copy : new HPacket("Whisper", HMessage.Direction.TOCLIENT, userIndex, s, 0, 30, 0, -1));
+                    Tracer.finish(trace, Tracer.Event.RESEND);
+                }
+                else if (claimed) {
+                    Tracer.finish(trace, Tracer.Event.PASS_THROUGH);
                 }
             });
 
@@ -500,6 +678,15 @@ public class TranslatorExtension extends ExtensionForm {
         }
     }
 
+    public void dumpTraces(ActionEvent actionEvent) {
+        try {
+            File file = Tracer.dump();
+            System.out.println(file == null ? "tracing is turned off" : "traces written to " + file);
+        } catch (IOException e) {
+            System.out.println("couldn't write traces: " + e.getMessage());
+        }
+    }
+
     public String getApi() {
         return ((RadioButton) (tglAPI.getSelectedToggle())).getText().split(" ")[0].toLowerCase();
     }
@@ -511,4 +698,21 @@ public class TranslatorExtension extends ExtensionForm {
     public String getMicrosoftRegion() {
         return apiMicrosoftRegion.getText();
     }
+
+    public String getArgosUrl() {
+        return apiArgosUrl.getText();
+    }
+
+    public String getArgosKey() {
+        return apiArgosKey.getText();
+    }
+
+    // no ui for these, they only matter when pointing the translators at a proxy or a local stand-in
+    public String getDeepLUrl() {
+        return (String) settings.getOrDefault("deeplUrl", "");
+    }
+
+    public String getMicrosoftUrl() {
+        return (String) settings.getOrDefault("microsoftUrl", "");
+    }
 }
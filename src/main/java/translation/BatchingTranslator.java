@@ -0,0 +1,181 @@
+package translation;
+
+import extension.Language;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+
+// collects single strings for the same language pair and executor during a short window and sends them as one list call
+public class BatchingTranslator extends Translator {
+
+    private final Translator delegate;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final Map<List<Object>, Batch> pending = new HashMap<>(); // guarded by this
+
+    public BatchingTranslator(Translator delegate, long windowMillis, int maxBatchSize) {
+        this.delegate = delegate;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    @Override
+    protected String translate(String text, Language source, Language target) throws TranslationException {
+        return delegate.translate(text, source, target);
+    }
+
+    @Override
+    protected List<String> translate(List<String> texts, Language source, Language target) throws TranslationException {
+        return delegate.translate(texts, source, target);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> translateAsync(List<String> texts, Language source, Language target, Executor executor) {
+        return delegate.translateAsync(texts, source, target, executor);
+    }
+
+    @Override
+    public CompletableFuture<String> translateAsync(String text, Language source, Language target, Executor executor) {
+        if (windowMillis <= 0 || maxBatchSize == 1 || !delegate.allowMultiLines()) {
+            return delegate.translateAsync(text, source, target, executor);
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (this) {
+            // keyed by executor too, so work of different priorities never ends up in one batch
+            List<Object> key = new ArrayList<>(3);
+            key.add(source);
+            key.add(target);
+            key.add(executor);
+
+            Batch batch = pending.get(key);
+            if (batch == null) {
+                // the batch runs on the executor of whoever opened it
+                batch = new Batch(source, target, executor);
+                pending.put(key, batch);
+                Batch scheduled = batch;
+                batch.timer = TranslationExecutor.schedule(() -> flush(key, scheduled), windowMillis);
+            }
+
+            batch.texts.add(text);
+            batch.results.add(result);
+            batch.live++;
+            batch.traces = Tracer.join(batch.traces, Tracer.current());
+            Batch joined = batch;
+            result.whenComplete((s, error) -> {
+                if (result.isCancelled()) cancelled(joined);
+            });
+
+            if (batch.texts.size() >= maxBatchSize) {
+                pending.remove(key);
+                batch.timer.cancel(false);
+                full = batch;
+            }
+        }
+
+        if (full != null) send(full);
+        return result;
+    }
+
+    @Override
+    public boolean allowMultiLines() {
+        return delegate.allowMultiLines();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    private void flush(List<Object> key, Batch batch) {
+        synchronized (this) {
+            if (pending.get(key) != batch) return; // already sent because it filled up
+            pending.remove(key);
+        }
+        send(batch);
+    }
+
+    // the request of a batch is only cancelled once every text in it was
+    private void cancelled(Batch batch) {
+        CompletableFuture<List<String>> request;
+        synchronized (this) {
+            if (--batch.live > 0) return;
+            request = batch.request;
+        }
+        if (request != null) request.cancel(true);
+    }
+
+    private void send(Batch batch) {
+        synchronized (this) {
+            if (batch.live == 0) return; // everyone gave up while it was collecting
+        }
+
+        // whoever flushes, the work belongs to every message in the batch
+        CompletableFuture<List<String>> future;
+        long[] previousTraces = Tracer.enter(batch.traces);
+        try {
+            future = delegate.translateAsync(batch.texts, batch.source, batch.target, batch.executor);
+        } finally {
+            Tracer.exit(previousTraces);
+        }
+
+        boolean abandoned;
+        synchronized (this) {
+            batch.request = future;
+            abandoned = batch.live == 0;
+        }
+        if (abandoned) future.cancel(true);
+
+        future.whenComplete((strings, error) -> {
+            if (error == null && strings.size() != batch.results.size()) {
+                error = new TranslationException("Translation returned " + strings.size() + " results for " + batch.results.size() + " texts");
+            }
+
+            if (error == null) {
+                for (int i = 0; i < strings.size(); i++) {
+                    batch.results.get(i).complete(strings.get(i));
+                }
+                return;
+            }
+
+            TranslationException exception = Futures.unwrap(error);
+            if (exception instanceof PartialTranslationException) {
+                PartialTranslationException partial = (PartialTranslationException) exception;
+                for (int i = 0; i < batch.results.size(); i++) {
+                    String result = partial.getResults().get(i);
+                    if (result != null) batch.results.get(i).complete(result);
+                    else batch.results.get(i).completeExceptionally(partial.getErrors().get(i));
+                }
+                return;
+            }
+            for (CompletableFuture<String> result : batch.results) {
+                result.completeExceptionally(exception);
+            }
+        });
+    }
+
+    private static class Batch {
+        private final Language source;
+        private final Language target;
+        private final Executor executor;
+        private final List<String> texts = new ArrayList<>();
+        private final List<CompletableFuture<String>> results = new ArrayList<>();
+        private ScheduledFuture<?> timer;
+        private long[] traces = new long[0];
+        private int live = 0; // texts nobody cancelled yet, guarded by the translator
+        private CompletableFuture<List<String>> request = null; // guarded by the translator
+
+        private Batch(Language source, Language target, Executor executor) {
+            this.source = source;
+            this.target = target;
+            this.executor = executor;
+        }
+    }
+}
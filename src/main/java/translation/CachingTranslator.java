@@ -0,0 +1,159 @@
+package translation;
+
+import extension.Language;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// serves repeated strings from a TranslationCache, only misses reach the wrapped translator
+public class CachingTranslator extends Translator {
+
+    private final Translator delegate;
+    private final TranslationCache cache;
+
+    public CachingTranslator(Translator delegate, TranslationCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    protected String translate(String text, Language source, Language target) throws TranslationException {
+        String cached = lookup(text, source, target);
+        if (cached != null) return cached;
+
+        String result = delegate.translate(text, source, target);
+        cache.put(getName(), source, target, text, result);
+        return result;
+    }
+
+    @Override
+    protected List<String> translate(List<String> texts, Language source, Language target) throws TranslationException {
+        Lookup lookup = new Lookup(texts, source, target);
+        if (lookup.misses.isEmpty()) return lookup.results;
+
+        try {
+            return lookup.complete(delegate.translate(lookup.misses, source, target));
+        } catch (PartialTranslationException e) {
+            throw lookup.completePartially(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<String>> translateAsync(List<String> texts, Language source, Language target, Executor executor) {
+        Lookup lookup = new Lookup(texts, source, target);
+        if (lookup.misses.isEmpty()) {
+            return CompletableFuture.completedFuture(lookup.results);
+        }
+
+        CompletableFuture<List<String>> result = new CompletableFuture<>();
+        CompletableFuture<List<String>> request = delegate.translateAsync(lookup.misses, source, target, executor);
+        request.whenComplete((strings, error) -> {
+            try {
+                if (error == null) {
+                    result.complete(lookup.complete(strings));
+                    return;
+                }
+                TranslationException exception = Futures.unwrap(error);
+                if (exception instanceof PartialTranslationException) {
+                    exception = lookup.completePartially((PartialTranslationException) exception);
+                }
+                result.completeExceptionally(exception);
+            } catch (TranslationException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return Futures.cancelling(result, request);
+    }
+
+    @Override
+    public String peek(String text, Language source, Language target) {
+        return cache.get(getName(), source, target, text);
+    }
+
+    // a hit completes right away on the calling thread, without queueing anything
+    @Override
+    public CompletableFuture<String> translateAsync(String text, Language source, Language target, Executor executor) {
+        String cached = lookup(text, source, target);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<String> request = delegate.translateAsync(text, source, target, executor);
+        return Futures.cancelling(request.thenApply(s -> {
+            cache.put(getName(), source, target, text, s);
+            return s;
+        }), request);
+    }
+
+    @Override
+    public boolean allowMultiLines() {
+        return delegate.allowMultiLines();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    private String lookup(String text, Language source, Language target) {
+        String cached = cache.get(getName(), source, target, text);
+        if (cached != null) Metrics.cacheHit();
+        else Metrics.cacheMiss();
+        Tracer.record(cached != null ? Tracer.Event.CACHE_HIT : Tracer.Event.CACHE_MISS);
+        return cached;
+    }
+
+    private class Lookup {
+        private final List<String> texts;
+        private final Language source;
+        private final Language target;
+
+        private final List<String> results = new ArrayList<>();
+        private final List<Integer> missIndexes = new ArrayList<>();
+        private final List<String> misses = new ArrayList<>();
+
+        private Lookup(List<String> texts, Language source, Language target) {
+            this.texts = texts;
+            this.source = source;
+            this.target = target;
+
+            for (int i = 0; i < texts.size(); i++) {
+                String cached = lookup(texts.get(i), source, target);
+                results.add(cached);
+                if (cached == null) {
+                    missIndexes.add(i);
+                    misses.add(texts.get(i));
+                }
+            }
+        }
+
+        private List<String> complete(List<String> translated) throws TranslationException {
+            if (translated.size() != misses.size()) {
+                throw new TranslationException("Translation returned " + translated.size() + " results for " + misses.size() + " texts");
+            }
+            for (int i = 0; i < translated.size(); i++) {
+                int index = missIndexes.get(i);
+                results.set(index, translated.get(i));
+                cache.put(getName(), source, target, texts.get(index), translated.get(i));
+            }
+            return results;
+        }
+
+        // caches what did get translated and maps the failures back onto the full list
+        private PartialTranslationException completePartially(PartialTranslationException partial) {
+            List<TranslationException> errors = new ArrayList<>();
+            for (int i = 0; i < texts.size(); i++) {
+                errors.add(null);
+            }
+            for (int i = 0; i < misses.size(); i++) {
+                int index = missIndexes.get(i);
+                String translated = partial.getResults().get(i);
+                results.set(index, translated);
+                if (translated != null) cache.put(getName(), source, target, texts.get(index), translated);
+                else errors.set(index, partial.getErrors().get(i));
+            }
+            return new PartialTranslationException(results, errors);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package translation;
+
+// stops sending requests to a provider after repeated failures, lets a single trial through after the cooldown
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long cooldownMillis;
+
+    private State state = State.CLOSED; // guarded by this
+    private int failures = 0;
+    private long openedAt = 0;
+
+    public CircuitBreaker(int failureThreshold, long cooldownMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < cooldownMillis) return false;
+                state = State.HALF_OPEN;
+                return true;
+            case HALF_OPEN:
+                return false; // trial request still running
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    // the request never got an answer, e.g. it was cancelled or never ran, so a trial must not keep the breaker half open
+    public synchronized void onCancel() {
+        if (state == State.HALF_OPEN) state = State.OPEN; // the cooldown already passed, the next request is the new trial
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,123 @@
+package translation;
+
+import extension.Language;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+// tries an ordered chain of providers, the first one is the one the user selected
+// each one is a fully decorated chain with its own cache, so a fallback's answers are never cached under the primary's name
+public class FailoverTranslator extends Translator {
+
+    private final List<Translator> chain;
+
+    public FailoverTranslator(List<Translator> chain) {
+        this.chain = chain;
+    }
+
+    @Override
+    protected String translate(String text, Language source, Language target) throws TranslationException {
+        TranslationException last = null;
+        for (Translator translator : chain) {
+            try {
+                return translator.translate(text, source, target);
+            } catch (TranslationException e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    @Override
+    protected List<String> translate(List<String> texts, Language source, Language target) throws TranslationException {
+        TranslationException last = null;
+        for (Translator translator : chain) {
+            try {
+                return translator.translate(texts, source, target);
+            } catch (PartialTranslationException e) {
+                throw e; // the provider works, hand out what it managed to translate
+            } catch (TranslationException e) {
+                last = e;
+            }
+        }
+        throw last;
+    }
+
+    @Override
+    public CompletableFuture<String> translateAsync(String text, Language source, Language target, Executor executor) {
+        return new Attempt<String>(translator -> translator.translateAsync(text, source, target, executor)).start();
+    }
+
+    @Override
+    public CompletableFuture<List<String>> translateAsync(List<String> texts, Language source, Language target, Executor executor) {
+        return new Attempt<List<String>>(translator -> translator.translateAsync(texts, source, target, executor)).start();
+    }
+
+    // only the primary's cache, a cached fallback answer is used once the primary actually failed
+    @Override
+    public String peek(String text, Language source, Language target) {
+        return chain.get(0).peek(text, source, target);
+    }
+
+    @Override
+    public boolean allowMultiLines() {
+        return chain.get(0).allowMultiLines();
+    }
+
+    @Override
+    public String getName() {
+        return chain.get(0).getName();
+    }
+
+    // walks the chain until a provider answers, cancelling the result cancels the provider that is being tried
+    private class Attempt<T> {
+        private final Function<Translator, CompletableFuture<T>> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long[] traces = Tracer.current();
+        private volatile CompletableFuture<T> current = null;
+
+        private Attempt(Function<Translator, CompletableFuture<T>> call) {
+            this.call = call;
+            result.whenComplete((value, error) -> {
+                CompletableFuture<T> current = this.current;
+                if (result.isCancelled() && current != null) current.cancel(true);
+            });
+        }
+
+        private CompletableFuture<T> start() {
+            next(0);
+            return result;
+        }
+
+        private void next(int index) {
+            if (result.isDone()) return;
+
+            CompletableFuture<T> future;
+            long[] previousTraces = Tracer.enter(traces);
+            try {
+                future = call.apply(chain.get(index));
+            } finally {
+                Tracer.exit(previousTraces);
+            }
+            current = future;
+            if (result.isCancelled()) future.cancel(true);
+
+            future.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                    return;
+                }
+                TranslationException exception = Futures.unwrap(error);
+                // a partial answer means the provider works, hand out what it managed to translate
+                if (exception instanceof PartialTranslationException || index + 1 >= chain.size()) {
+                    result.completeExceptionally(exception);
+                }
+                else {
+                    next(index + 1);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package translation;
+
+import misc.MaybeConsumer;
+
+import java.util.concurrent.*;
+import java.util.function.BiConsumer;
+
+public class Futures {
+
+    private Futures() { }
+
+    public interface Call<T> {
+        T call() throws TranslationException;
+    }
+
+    // runs a blocking call on the executor, cancelling the future interrupts the call if it already started
+    public static <T> CompletableFuture<T> supply(Call<T> call, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Task<T> task = new Task<>(call, future, Tracer.current());
+        Tracer.record(Tracer.Event.QUEUED);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) task.interrupt();
+        });
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new TranslationException("Translation job was rejected", TranslationException.REJECTED));
+        }
+        return future;
+    }
+
+    // cancelling the dependent future also cancels the one it was derived from, interrupting its call
+    public static <T> CompletableFuture<T> cancelling(CompletableFuture<T> dependent, Future<?> source) {
+        dependent.whenComplete((result, error) -> {
+            if (dependent.isCancelled()) source.cancel(true);
+        });
+        return dependent;
+    }
+
+    // the TranslationException behind a failed future, wrapping anything else
+    public static TranslationException unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error instanceof TranslationException) return (TranslationException) error;
+        if (error instanceof CancellationException) return new TranslationException("Translation was cancelled");
+        return new TranslationException("Translation failed: " + error);
+    }
+
+    public static <T> BiConsumer<T, Throwable> toCallback(MaybeConsumer<T, TranslationException> callback) {
+        return (result, error) -> {
+            if (error != null) callback.except(unwrap(error));
+            else callback.accept(result);
+        };
+    }
+
+    private static class Task<T> implements Runnable, TranslationExecutor.Rejectable {
+        private final Call<T> call;
+        private final CompletableFuture<T> future;
+        private final long[] traces;
+        private Thread runner = null; // guarded by this
+
+        private Task(Call<T> call, CompletableFuture<T> future, long[] traces) {
+            this.call = call;
+            this.future = future;
+            this.traces = traces;
+        }
+
+        @Override
+        public void run() {
+            // cancelled or timed out while it was waiting for a worker
+            if (future.isDone()) return;
+
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            long[] previousTraces = Tracer.enter(traces);
+            try {
+                future.complete(call.call());
+            } catch (TranslationException e) {
+                future.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(new TranslationException("Translation failed: " + e));
+            } finally {
+                Tracer.exit(previousTraces);
+                synchronized (this) {
+                    runner = null;
+                    Thread.interrupted(); // don't leak an interrupt from cancel() into the next job on this worker
+                }
+            }
+        }
+
+        private synchronized void interrupt() {
+            if (runner != null) runner.interrupt();
+        }
+
+        @Override
+        public void rejected(TranslationException exception) {
+            future.completeExceptionally(exception);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package translation;
+
+import extension.Language;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// sends a request to a secondary provider when the primary is slower than usual, the first answer wins
+public class HedgingTranslator extends Translator {
+
+    private static final int SAMPLES = 64;
+    private static final long DEFAULT_DELAY_MILLIS = 1000;
+
+    private static final AtomicLong hedgesFired = new AtomicLong();
+    private static final AtomicLong hedgesWon = new AtomicLong();
+
+    private final Translator primary;
+    private final Translator secondary;
+    private final double percentile;
+
+    private final long[] latencies = new long[SAMPLES]; // guarded by itself
+    private int sampleCount = 0;
+
+    public HedgingTranslator(Translator primary, Translator secondary, int percentile) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.percentile = Math.max(1, Math.min(100, percentile)) / 100.0;
+    }
+
+    public static long getHedgesFired() {
+        return hedgesFired.get();
+    }
+
+    public static long getHedgesWon() {
+        return hedgesWon.get();
+    }
+
+    public Translator getPrimary() {
+        return primary;
+    }
+
+    public Translator getSecondary() {
+        return secondary;
+    }
+
+    @Override
+    protected String translate(String text, Language source, Language target) throws TranslationException {
+        return primary.translate(text, source, target);
+    }
+
+    @Override
+    protected List<String> translate(List<String> texts, Language source, Language target) throws TranslationException {
+        return primary.translate(texts, source, target);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> translateAsync(List<String> texts, Language source, Language target, Executor executor) {
+        return primary.translateAsync(texts, source, target, executor);
+    }
+
+    @Override
+    public CompletableFuture<String> translateAsync(String text, Language source, Language target, Executor executor) {
+        // a hit must neither arm the timer nor pull the percentile towards zero, only misses are sampled
+        String cached = primary.peek(text, source, target);
+        if (cached != null) {
+            Metrics.cacheHit();
+            Tracer.record(Tracer.Event.CACHE_HIT);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        Race race = new Race(text, source, target, executor);
+        race.timer = TranslationExecutor.schedule(race::hedge, hedgeDelay());
+
+        long start = System.nanoTime();
+        race.primary = primary.translateAsync(text, source, target, executor);
+        race.primary.whenComplete((s, error) -> {
+            if (error != null) {
+                race.primaryFailed(Futures.unwrap(error));
+            }
+            else {
+                record((System.nanoTime() - start) / 1000000);
+                race.finish(s, false);
+            }
+        });
+        return race.result;
+    }
+
+    @Override
+    public String peek(String text, Language source, Language target) {
+        return primary.peek(text, source, target);
+    }
+
+    @Override
+    public boolean allowMultiLines() {
+        return primary.allowMultiLines();
+    }
+
+    @Override
+    public String getName() {
+        return primary.getName();
+    }
+
+    private void record(long millis) {
+        synchronized (latencies) {
+            latencies[sampleCount % SAMPLES] = millis;
+            sampleCount++;
+        }
+    }
+
+    private long hedgeDelay() {
+        long[] sorted;
+        synchronized (latencies) {
+            if (sampleCount < 8) return DEFAULT_DELAY_MILLIS;
+            sorted = Arrays.copyOf(latencies, Math.min(sampleCount, SAMPLES));
+        }
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private class Race {
+        private final String text;
+        private final Language source;
+        private final Language target;
+        private final Executor executor;
+
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final AtomicBoolean hedged = new AtomicBoolean(false);
+        private volatile CompletableFuture<String> primary = null;
+        private volatile CompletableFuture<String> secondary = null;
+        private volatile boolean primaryFailed = false;
+        private volatile boolean secondaryFailed = false;
+        private volatile ScheduledFuture<?> timer = null;
+
+        private Race(String text, Language source, Language target, Executor executor) {
+            this.text = text;
+            this.source = source;
+            this.target = target;
+            this.executor = executor;
+
+            // whoever cancels the race cancels both requests
+            result.whenComplete((s, error) -> {
+                if (result.isCancelled()) cancelAll();
+            });
+        }
+
+        private void hedge() {
+            if (result.isDone() || !hedged.compareAndSet(false, true)) return;
+            hedgesFired.incrementAndGet();
+
+            secondary = HedgingTranslator.this.secondary.translateAsync(text, source, target, executor);
+            secondary.whenComplete((s, error) -> {
+                if (error != null) {
+                    secondaryFailed = true;
+                    if (primaryFailed) result.completeExceptionally(Futures.unwrap(error));
+                }
+                else {
+                    finish(s, true);
+                }
+            });
+        }
+
+        private void primaryFailed(TranslationException exception) {
+            primaryFailed = true;
+            // no point in waiting for the hedge delay anymore
+            if (!hedged.get()) {
+                ScheduledFuture<?> timer = this.timer;
+                if (timer != null) timer.cancel(false);
+                hedge();
+            }
+            if (secondaryFailed || !hedged.get()) result.completeExceptionally(exception);
+        }
+
+        private void finish(String s, boolean bySecondary) {
+            if (!result.complete(s)) return;
+            if (bySecondary) hedgesWon.incrementAndGet();
+            cancelAll();
+        }
+
+        // the loser is cancelled, the chain passes that down and interrupts its request unless another caller still shares it
+        private void cancelAll() {
+            ScheduledFuture<?> timer = this.timer;
+            if (timer != null) timer.cancel(false);
+            CompletableFuture<String> primary = this.primary;
+            if (primary != null) primary.cancel(true);
+            CompletableFuture<String> secondary = this.secondary;
+            if (secondary != null) secondary.cancel(true);
+        }
+    }
+}
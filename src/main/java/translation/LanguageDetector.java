@@ -0,0 +1,136 @@
+package translation;
+
+import extension.Language;
+
+import java.util.*;
+
+// tiny n-gram/stopword language identifier, good enough to recognise a chat line that is already in the target language
+public class LanguageDetector {
+
+    private static final Map<Language, Profile> profiles = new EnumMap<>(Language.class);
+
+    static {
+        profile(Language.ENGLISH,
+                "the and you is are to of in it that what this have for not with your was but hi hey yes no my me im i'm do how why can will just lol "
+                        + "i am he she we they it's be been were has had does did don't can't would could should",
+                "the ing and her hat tha you ere thi his ion ent for wit ith ave hav ver all not wha ell oul uld ght");
+        profile(Language.FRENCH,
+                "le la les et est je tu vous pas un une des du que qui pour avec sur mais oui non bonjour salut merci ça c'est il elle nous on très",
+                "ent les ion que ous eur ait ais tio our men est pas ell res oui vou jou bon ç eux aux ett ien qu' é è");
+        profile(Language.GERMAN,
+                "der die das und ist ich du nicht ein eine zu mit den sie es auf wir was hallo ja nein danke auch wie bin hast",
+                "ich sch ein der die und den che cht ist nic ung gen das ber hal ach auc sie ier eit mit wir bin ß ä ö ü");
+        profile(Language.ITALIAN,
+                "il la le e è che di non un una per sono io tu ciao grazie si come cosa anche ma mi ti ho hai lo gli",
+                "che ell ent per zia ion non gli ono del con ato are ere sono cia cos tto ett anc chi sta zio ndo ggi");
+        profile(Language.PORTUGUESE,
+                "o a os as e é que de não um uma para com eu você tu sim obrigado olá oi tudo bem está estou meu isso",
+                "ção que ent ado não com ões par est nto ara uma voc ocê mos bem obr ada ida ele tud olá inh nha ã õ");
+        profile(Language.SPANISH,
+                "el la los las y es que de no un una para con yo tú sí gracias hola qué como está estoy pero muy por",
+                "que ent ado ión los las par est con ien nte ara hol ola por aci era com cio mos gra ndo ñ ¿ ¡");
+        profile(Language.TURKISH,
+                "ve bir bu da de ne ben sen evet hayır merhaba selam teşekkürler nasıl için mi mı var yok çok ama değil",
+                "bir ler lar ını ına eri ara ini yor iyo ıyo ver sın sin nız niz mer erh ele ben sen bil ğ ş ı");
+        profile(Language.FINNISH,
+                "ja on ei se että mitä minä sinä kiitos moi hei kyllä mutta niin tämä ole olen oot mä sä",
+                "ään ist sta aan tta ssa llä lla kii iit ois ine tää ett itä nen kse hei moi yy ää öö uu ii");
+        profile(Language.DUTCH,
+                "de het een en is ik je niet van dat wat zijn met op ja nee hoi hallo dank bedankt ook maar hoe jij mijn",
+                "een het ijk oor ver aar ter ede erd sch cht uit dat nie iet wat hoi leu euk ouw ook ij oe ee aa");
+    }
+
+    public static class Detection {
+        private final Language language;
+        private final double score;
+        private final double confidence; // 0..1, how far ahead of the runner-up
+
+        private Detection(Language language, double score, double confidence) {
+            this.language = language;
+            this.score = score;
+            this.confidence = confidence;
+        }
+
+        public Language getLanguage() {
+            return language;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+    }
+
+    // null when the text gives too little to go on
+    public static Detection detect(String text) {
+        String normalized = " " + text.toLowerCase(Locale.ROOT) + " ";
+        List<String> words = words(normalized);
+        if (words.isEmpty()) return null;
+
+        Language best = null;
+        double bestScore = 0;
+        double secondScore = 0;
+        for (Map.Entry<Language, Profile> entry : profiles.entrySet()) {
+            double score = entry.getValue().score(normalized, words);
+            if (score > bestScore) {
+                secondScore = bestScore;
+                bestScore = score;
+                best = entry.getKey();
+            }
+            else if (score > secondScore) {
+                secondScore = score;
+            }
+        }
+
+        if (best == null || bestScore < 2) return null;
+        return new Detection(best, bestScore, 1 - secondScore / bestScore);
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean wordChar = Character.isLetter(c) || c == '\'';
+            if (wordChar && start == -1) start = i;
+            if (!wordChar && start != -1) {
+                words.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static void profile(Language language, String stopwords, String ngrams) {
+        profiles.put(language, new Profile(
+                new HashSet<>(Arrays.asList(stopwords.split(" "))),
+                ngrams.split(" ")));
+    }
+
+    private static class Profile {
+        private final Set<String> stopwords;
+        private final String[] ngrams;
+
+        private Profile(Set<String> stopwords, String[] ngrams) {
+            this.stopwords = stopwords;
+            this.ngrams = ngrams;
+        }
+
+        // whole stopwords count double, n-grams (and language specific letters) once per occurrence
+        private double score(String text, List<String> words) {
+            double score = 0;
+            for (String word : words) {
+                if (stopwords.contains(word)) score += 2;
+            }
+            for (String ngram : ngrams) {
+                for (int i = text.indexOf(ngram); i != -1; i = text.indexOf(ngram, i + 1)) {
+                    score += 1;
+                }
+            }
+            return score;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package translation;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// lock free latency histogram with power of two millisecond buckets, 1ms up to about a minute
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 17;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long millis) {
+        buckets[bucket(millis)].increment();
+        count.increment();
+        totalMillis.add(Math.max(0, millis));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMean() {
+        long count = this.count.sum();
+        return count == 0 ? 0 : (double) totalMillis.sum() / count;
+    }
+
+    // upper bound of the bucket the percentile falls in, so at most twice the real value
+    public long percentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) return 1L << i;
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    private static int bucket(long millis) {
+        if (millis <= 1) return 0;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis - 1));
+    }
+}
@@ -0,0 +1,64 @@
+package translation;
+
+import extension.Language;
+
+import java.util.List;
+
+// records every provider call in Metrics, sits right above the provider so each retry counts as a call
+public class MeteredTranslator extends Translator {
+
+    private final Translator delegate;
+    private final Metrics.Stats stats;
+
+    public MeteredTranslator(Translator delegate) {
+        this.delegate = delegate;
+        this.stats = Metrics.provider(delegate.getName());
+    }
+
+    @Override
+    protected String translate(String text, Language source, Language target) throws TranslationException {
+        stats.addCharacters(text == null ? 0 : text.length());
+        Tracer.record(Tracer.Event.HTTP_START);
+        long start = stats.start();
+        boolean failed = true;
+        try {
+            String result = delegate.translate(text, source, target);
+            failed = false;
+            return result;
+        } finally {
+            stats.end(start, failed);
+            Tracer.record(Tracer.Event.HTTP_END);
+        }
+    }
+
+    @Override
+    protected List<String> translate(List<String> texts, Language source, Language target) throws TranslationException {
+        int characters = 0;
+        for (String text : texts) {
+            characters += text == null ? 0 : text.length();
+        }
+        stats.addCharacters(characters);
+
+        Tracer.record(Tracer.Event.HTTP_START);
+        long start = stats.start();
+        boolean failed = true;
+        try {
+            List<String> result = delegate.translate(texts, source, target);
+            failed = false;
+            return result;
+        } finally {
+            stats.end(start, failed);
+            Tracer.record(Tracer.Event.HTTP_END);
+        }
+    }
+
+    @Override
+    public boolean allowMultiLines() {
+        return delegate.allowMultiLines();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+}
@@ -0,0 +1,208 @@
+package translation;
+
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+// counters for the packet handlers and the providers, published over JMX under "translator:*"
+public class Metrics {
+
+    private static final Map<String, Stats> handlers = new ConcurrentHashMap<>();
+    private static final Map<String, Stats> providers = new ConcurrentHashMap<>();
+
+    private static final LongAdder cacheHits = new LongAdder();
+    private static final LongAdder cacheMisses = new LongAdder();
+    private static volatile IntSupplier queueDepth = () -> 0;
+
+    static {
+        register("translator:type=Translator", new Summary(), SummaryMBean.class);
+    }
+
+    public static Stats handler(String name) {
+        return handlers.computeIfAbsent(name, n -> register("translator:type=Handler,name=" + n, new Stats(), StatsMBean.class));
+    }
+
+    public static Stats provider(String name) {
+        return providers.computeIfAbsent(name, n -> register("translator:type=Provider,name=" + n, new Stats(), StatsMBean.class));
+    }
+
+    public static void setQueueDepth(IntSupplier supplier) {
+        queueDepth = supplier;
+    }
+
+    static void cacheHit() {
+        cacheHits.increment();
+    }
+
+    static void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public static double getCacheHitRatio() {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public static int getInFlight() {
+        int inFlight = 0;
+        for (Stats stats : providers.values()) {
+            inFlight += stats.getInFlight();
+        }
+        return inFlight;
+    }
+
+    // plain text overview for the stats tab
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-22s %7s %6s %6s %6s %6s%n", "handler", "count", "errors", "p50", "p90", "p99"));
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(handlers).entrySet()) {
+            Stats stats = entry.getValue();
+            sb.append(String.format("%-22s %7d %6d %6d %6d %6d%n", entry.getKey(), stats.getCount(), stats.getErrors(),
+                    stats.getP50Millis(), stats.getP90Millis(), stats.getP99Millis()));
+        }
+        sb.append(String.format("%n%-22s %7s %6s %6s %6s %10s%n", "provider", "calls", "errors", "p50", "p90", "chars"));
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(providers).entrySet()) {
+            Stats stats = entry.getValue();
+            sb.append(String.format("%-22s %7d %6d %6d %6d %10d%n", entry.getKey(), stats.getCount(), stats.getErrors(),
+                    stats.getP50Millis(), stats.getP90Millis(), stats.getCharacters()));
+        }
+        sb.append(String.format("%ncache hit ratio %.1f%% (%d entries), queued %d, in flight %d, hedges %d fired / %d won",
+                getCacheHitRatio() * 100, TranslatorFactory.getCache().size(), queueDepth.getAsInt(), getInFlight(),
+                HedgingTranslator.getHedgesFired(), HedgingTranslator.getHedgesWon()));
+        return sb.toString();
+    }
+
+    private static <T> T register(String name, T bean, Class<? super T> type) {
+        try {
+            @SuppressWarnings("unchecked")
+            StandardMBean mbean = new StandardMBean(bean, (Class<T>) type);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(name));
+        } catch (Exception | LinkageError ignored) {
+            // already registered or no JMX available, the counters still work
+        }
+        return bean;
+    }
+
+    public interface StatsMBean {
+        long getCount();
+        long getErrors();
+        int getInFlight();
+        long getCharacters();
+        double getMeanMillis();
+        long getP50Millis();
+        long getP90Millis();
+        long getP99Millis();
+    }
+
+    public static class Stats implements StatsMBean {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder characters = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        // returns the start time to pass to end()
+        public long start() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        public void end(long start, boolean failed) {
+            inFlight.decrementAndGet();
+            latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            if (failed) errors.increment();
+        }
+
+        public void addCharacters(int count) {
+            characters.add(count);
+        }
+
+        @Override
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        @Override
+        public long getCharacters() {
+            return characters.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return latency.getMean();
+        }
+
+        @Override
+        public long getP50Millis() {
+            return latency.percentile(50);
+        }
+
+        @Override
+        public long getP90Millis() {
+            return latency.percentile(90);
+        }
+
+        @Override
+        public long getP99Millis() {
+            return latency.percentile(99);
+        }
+    }
+
+    public interface SummaryMBean {
+        double getCacheHitRatio();
+        int getCacheSize();
+        int getQueueDepth();
+        int getInFlight();
+        long getHedgesFired();
+        long getHedgesWon();
+    }
+
+    private static class Summary implements SummaryMBean {
+        @Override
+        public double getCacheHitRatio() {
+            return Metrics.getCacheHitRatio();
+        }
+
+        @Override
+        public int getCacheSize() {
+            return TranslatorFactory.getCache().size();
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return queueDepth.getAsInt();
+        }
+
+        @Override
+        public int getInFlight() {
+            return Metrics.getInFlight();
+        }
+
+        @Override
+        public long getHedgesFired() {
+            return HedgingTranslator.getHedgesFired();
+        }
+
+        @Override
+        public long getHedgesWon() {
+            return HedgingTranslator.getHedgesWon();
+        }
+    }
+}
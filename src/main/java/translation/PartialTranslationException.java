@@ -0,0 +1,37 @@
+package translation;
+
+import java.util.List;
+
+// some items of a list translation failed, the others are still usable
+public class PartialTranslationException extends TranslationException {
+
+    private final List<String> results;
+    private final List<TranslationException> errors;
+
+    // results holds null where errors holds the failure of that item, and the other way around
+    public PartialTranslationException(List<String> results, List<TranslationException> errors) {
+        super(firstError(errors).getReason(), firstError(errors).getCode());
+        this.results = results;
+        this.errors = errors;
+    }
+
+    public List<String> getResults() {
+        return results;
+    }
+
+    public List<TranslationException> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public boolean isRetryable() {
+        return false;
+    }
+
+    private static TranslationException firstError(List<TranslationException> errors) {
+        for (TranslationException error : errors) {
+            if (error != null) return error;
+        }
+        return new TranslationException("Translation partially failed");
+    }
+}
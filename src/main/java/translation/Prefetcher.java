@@ -0,0 +1,142 @@
+package translation;
+
+import extension.Language;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+// warms the cache with strings that are likely to be needed soon, only while no interactive translation is going on
+public class Prefetcher {
+
+    private static final long TICK_MILLIS = 500;
+    private static final int MAX_QUEUED = 2000;
+    private static final int MAX_BATCH = 25;
+    private static final int MAX_PHRASES = 2000;
+    private static final int FREQUENT = 3;
+
+    private final Supplier<Translator> translator;
+    private final Executor executor;
+    private final long idleMillis;
+    private final int quotaChars;
+    private final long quotaWindowMillis;
+
+    // provider-less keys, the translator is only picked when the batch goes out
+    private final Set<TranslationKey> queue = new LinkedHashSet<>();
+    private final Map<TranslationKey, Integer> phrases = new LinkedHashMap<TranslationKey, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TranslationKey, Integer> eldest) {
+            return size() > MAX_PHRASES;
+        }
+    };
+
+    private volatile long lastInteractive = 0;
+    private boolean inFlight = false;
+    private long windowStart = 0;
+    private int usedChars = 0;
+    private ScheduledFuture<?> tick = null;
+
+    public Prefetcher(Supplier<Translator> translator, Executor executor, long idleMillis, int quotaChars, long quotaWindowMillis) {
+        this.translator = translator;
+        this.executor = executor;
+        this.idleMillis = idleMillis;
+        this.quotaChars = quotaChars;
+        this.quotaWindowMillis = quotaWindowMillis;
+    }
+
+    public synchronized void prefetch(List<String> texts, Language source, Language target) {
+        for (String text : texts) {
+            enqueue(new TranslationKey(null, source, target, text));
+        }
+    }
+
+    // counts lines that come by, the ones seen often are kept warm
+    public synchronized void seen(String text, Language source, Language target) {
+        TranslationKey key = new TranslationKey(null, source, target, text);
+        int count = phrases.merge(key, 1, Integer::sum);
+        if (count >= FREQUENT) enqueue(key);
+    }
+
+    // interactive traffic pushes prefetching back until things have been quiet for idleMillis
+    public void onInteractive() {
+        lastInteractive = System.currentTimeMillis();
+    }
+
+    public synchronized void clear() {
+        queue.clear();
+        phrases.clear();
+        if (tick != null) {
+            tick.cancel(false);
+            tick = null;
+        }
+    }
+
+    private void enqueue(TranslationKey key) {
+        if (key.getText() == null || SkipFilter.isTrivial(key.getText())) return;
+
+        queue.add(key);
+        if (queue.size() > MAX_QUEUED) {
+            Iterator<TranslationKey> oldest = queue.iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        if (tick == null) {
+            tick = TranslationExecutor.schedule(this::tick, TICK_MILLIS);
+        }
+    }
+
+    private synchronized void tick() {
+        tick = null;
+        if (queue.isEmpty()) return;
+
+        if (!inFlight && System.currentTimeMillis() - lastInteractive >= idleMillis) {
+            dispatch();
+        }
+        if (!queue.isEmpty()) {
+            tick = TranslationExecutor.schedule(this::tick, TICK_MILLIS);
+        }
+    }
+
+    // one batch at a time, all with the same language pair as the oldest queued string
+    private void dispatch() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart > quotaWindowMillis) {
+            windowStart = now;
+            usedChars = 0;
+        }
+
+        Translator translator = this.translator.get();
+        Language source = null;
+        Language target = null;
+        List<String> texts = new ArrayList<>();
+
+        Iterator<TranslationKey> iterator = queue.iterator();
+        while (iterator.hasNext() && texts.size() < MAX_BATCH) {
+            TranslationKey key = iterator.next();
+            if (source == null) {
+                source = key.getSource();
+                target = key.getTarget();
+            }
+            if (key.getSource() != source || key.getTarget() != target) continue;
+
+            if (translator.peek(key.getText(), source, target) != null) {
+                iterator.remove();
+                continue;
+            }
+            if (usedChars + key.getText().length() > quotaChars) break;
+
+            usedChars += key.getText().length();
+            texts.add(key.getText());
+            iterator.remove();
+        }
+        if (texts.isEmpty()) return;
+
+        inFlight = true;
+        translator.translateAsync(texts, source, target, executor).whenComplete((strings, error) -> {
+            synchronized (this) {
+                inFlight = false;
+            }
+        });
+    }
+}
@@ -0,0 +1,174 @@
+package translation;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// hands translation work to the shared pool in priority order, so bulk work never delays what the user is typing
+// waiting work gains a class every agingMillis, so even prefetching gets its turn eventually
+public class PriorityScheduler {
+
+    public enum Priority {
+        OUTGOING,  // chat, DMs and invites the user sends
+        INCOMING,  // chat and whispers
+        ROOM_INFO,
+        NAVIGATOR,
+        PREFETCH
+    }
+
+    private final int maxRunning;
+    private final int maxWaiting;
+    private final long agingMillis;
+    private final Map<Priority, Integer> limits = new EnumMap<>(Priority.class);
+    private final Map<Priority, Executor> executors = new EnumMap<>(Priority.class);
+
+    // guarded by this
+    private final Map<Priority, Integer> running = new EnumMap<>(Priority.class);
+    private final List<Task> waiting = new ArrayList<>();
+    private int totalRunning = 0;
+    private long sequence = 0;
+
+    public PriorityScheduler(int maxRunning, int maxWaiting, long agingMillis) {
+        this.maxRunning = Math.max(1, maxRunning);
+        this.maxWaiting = Math.max(1, maxWaiting);
+        this.agingMillis = agingMillis <= 0 ? Long.MAX_VALUE : agingMillis;
+        for (Priority priority : Priority.values()) {
+            limits.put(priority, this.maxRunning);
+            running.put(priority, 0);
+            executors.put(priority, task -> submit(priority, task));
+        }
+    }
+
+    // how many jobs of this class may run at once
+    public void setLimit(Priority priority, int limit) {
+        limits.put(priority, Math.max(1, Math.min(limit, maxRunning)));
+    }
+
+    // the same instance every time, so decorators can tell the classes apart
+    public Executor executor(Priority priority) {
+        return executors.get(priority);
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    // fails everything still waiting, e.g. when the connection ends
+    public void clear() {
+        List<Task> dropped;
+        synchronized (this) {
+            dropped = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        for (Task task : dropped) {
+            task.reject(new TranslationException("Translation job was rejected", TranslationException.REJECTED));
+        }
+    }
+
+    private void submit(Priority priority, Runnable runnable) {
+        Task task = new Task(priority, runnable);
+        Task dropped = null;
+        synchronized (this) {
+            task.sequence = sequence++;
+            waiting.add(task);
+            if (waiting.size() > maxWaiting) {
+                // make room by dropping the least important job, which might be this one
+                dropped = lowest();
+                waiting.remove(dropped);
+            }
+        }
+
+        if (dropped != null) dropped.reject(new TranslationException("Translation job was dropped for more urgent work", TranslationException.REJECTED));
+        dispatch();
+    }
+
+    private void dispatch() {
+        List<Task> ready = new ArrayList<>();
+        synchronized (this) {
+            Task next;
+            while (totalRunning < maxRunning && (next = highest()) != null) {
+                waiting.remove(next);
+                running.merge(next.priority, 1, Integer::sum);
+                totalRunning++;
+                ready.add(next);
+            }
+        }
+
+        for (Task task : ready) {
+            TranslationExecutor.get().execute(task);
+        }
+    }
+
+    private void finished(Task task) {
+        synchronized (this) {
+            running.merge(task.priority, -1, Integer::sum);
+            totalRunning--;
+        }
+        dispatch();
+    }
+
+    // best waiting task whose class still has room, oldest first within the same (aged) class
+    private Task highest() {
+        long now = System.currentTimeMillis();
+        Task best = null;
+        for (Task task : waiting) {
+            if (running.get(task.priority) >= limits.get(task.priority)) continue;
+            if (best == null || task.compareTo(best, now) < 0) best = task;
+        }
+        return best;
+    }
+
+    private Task lowest() {
+        long now = System.currentTimeMillis();
+        Task worst = null;
+        for (Task task : waiting) {
+            if (worst == null || task.compareTo(worst, now) > 0) worst = task;
+        }
+        return worst;
+    }
+
+    private class Task implements Runnable, TranslationExecutor.Rejectable {
+        private final Priority priority;
+        private final Runnable runnable;
+        private final long queued = System.currentTimeMillis();
+        private long sequence;
+
+        private Task(Priority priority, Runnable runnable) {
+            this.priority = priority;
+            this.runnable = runnable;
+        }
+
+        private long rank(long now) {
+            return priority.ordinal() - (now - queued) / agingMillis;
+        }
+
+        private int compareTo(Task other, long now) {
+            int byRank = Long.compare(rank(now), other.rank(now));
+            return byRank != 0 ? byRank : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public void run() {
+            try {
+                runnable.run();
+            } finally {
+                finished(this);
+            }
+        }
+
+        // the pool turned it down after it was counted as running
+        @Override
+        public void rejected(TranslationException exception) {
+            reject(exception);
+            finished(this);
+        }
+
+        private void reject(TranslationException exception) {
+            if (runnable instanceof TranslationExecutor.Rejectable) {
+                ((TranslationExecutor.Rejectable) runnable).rejected(exception);
+            }
+        }
+    }
+}
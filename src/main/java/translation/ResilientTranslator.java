@@ -0,0 +1,187 @@
+package translation;
+
+import extension.Language;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// retries rate limited and server side failures with exponential backoff, guarded by a circuit breaker
+// async callers wait out the backoff on the timer, so a struggling provider doesn't tie up the workers
+public class ResilientTranslator extends Translator {
+
+    private static final long BASE_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 4000;
+
+    private final Translator delegate;
+    private final CircuitBreaker breaker;
+    private final int maxRetries;
+
+    public ResilientTranslator(Translator delegate, CircuitBreaker breaker, int maxRetries) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+        this.maxRetries = Math.max(0, maxRetries);
+    }
+
+    @Override
+    protected String translate(String text, Language source, Language target) throws TranslationException {
+        return call(() -> delegate.translate(text, source, target));
+    }
+
+    @Override
+    protected List<String> translate(List<String> texts, Language source, Language target) throws TranslationException {
+        return call(() -> delegate.translate(texts, source, target));
+    }
+
+    @Override
+    public CompletableFuture<String> translateAsync(String text, Language source, Language target, Executor executor) {
+        return callAsync(() -> delegate.translateAsync(text, source, target, executor));
+    }
+
+    @Override
+    public CompletableFuture<List<String>> translateAsync(List<String> texts, Language source, Language target, Executor executor) {
+        return callAsync(() -> delegate.translateAsync(texts, source, target, executor));
+    }
+
+    @Override
+    public boolean allowMultiLines() {
+        return delegate.allowMultiLines();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    // a blocking caller already owns its thread, so it sleeps through the backoff
+    private <T> T call(Attempt<T> attempt) throws TranslationException {
+        for (int i = 0; ; i++) {
+            if (!breaker.allowRequest()) throw unavailable();
+
+            T result;
+            try {
+                result = attempt.run();
+            } catch (TranslationException e) {
+                long delay = retryDelay(e, i);
+                if (delay < 0) throw e;
+                sleep(delay);
+                continue;
+            } catch (RuntimeException e) {
+                // e.g. a malformed url, a half open breaker must still hear about its trial
+                breaker.onFailure();
+                throw new TranslationException("Translation failed: " + e);
+            }
+            breaker.onSuccess();
+            return result;
+        }
+    }
+
+    private <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> attempt) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(attempt, 0, result, Tracer.current());
+        return result;
+    }
+
+    // each attempt is a separate job on the executor, cancelling the result cancels the attempt or the pending retry
+    private <T> void attempt(Supplier<CompletableFuture<T>> attempt, int i, CompletableFuture<T> result, long[] traces) {
+        if (result.isDone()) return; // cancelled while waiting for the retry
+        if (!breaker.allowRequest()) {
+            result.completeExceptionally(unavailable());
+            return;
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = attempt.get();
+        } catch (RuntimeException e) {
+            breaker.onFailure();
+            result.completeExceptionally(new TranslationException("Translation failed: " + e));
+            return;
+        }
+        Futures.cancelling(result, future);
+
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                breaker.onSuccess();
+                result.complete(value);
+                return;
+            }
+            if (future.isCancelled()) {
+                breaker.onCancel();
+                result.completeExceptionally(Futures.unwrap(error));
+                return;
+            }
+
+            TranslationException e = Futures.unwrap(error);
+            long delay = retryDelay(e, i);
+            if (delay < 0) {
+                result.completeExceptionally(e);
+                return;
+            }
+            ScheduledFuture<?> retry = TranslationExecutor.schedule(() -> {
+                long[] previousTraces = Tracer.enter(traces);
+                try {
+                    attempt(attempt, i + 1, result, traces);
+                } finally {
+                    Tracer.exit(previousTraces);
+                }
+            }, delay);
+            Futures.cancelling(result, retry);
+        });
+    }
+
+    // tells the breaker about a failed attempt, returns how long to wait before the next one or -1 to give up
+    private long retryDelay(TranslationException e, int attempt) {
+        if (e instanceof PartialTranslationException) {
+            breaker.onSuccess();
+            return -1;
+        }
+        if (e.getCode() == TranslationException.REJECTED) {
+            breaker.onCancel();
+            return -1;
+        }
+        // a bad request says nothing about the health of the provider
+        if (e.getCode() == 400) {
+            breaker.onSuccess();
+            return -1;
+        }
+
+        breaker.onFailure();
+        if (!e.isRetryable() || attempt >= maxRetries) return -1;
+
+        // a provider asking for a longer break than a chat message can wait gets it, the failover moves on
+        long retryAfterMillis = e.getRetryAfterMillis();
+        if (retryAfterMillis > MAX_BACKOFF_MILLIS) return -1;
+        return retryAfterMillis >= 0 ? retryAfterMillis : backoff(attempt);
+    }
+
+    // full jitter
+    private static long backoff(int attempt) {
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attempt);
+        return ThreadLocalRandom.current().nextLong(0, cap + 1);
+    }
+
+    private TranslationException unavailable() {
+        return new TranslationException(getName() + " is temporarily unavailable", TranslationException.UNAVAILABLE);
+    }
+
+    private static void sleep(long millis) throws TranslationException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranslationException("Translation was interrupted");
+        }
+    }
+
+    private interface Attempt<T> {
+        T run() throws TranslationException;
+    }
+}
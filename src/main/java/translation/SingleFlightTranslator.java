@@ -0,0 +1,118 @@
+package translation;
+
+import extension.Language;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+// identical strings that are already being translated at the same priority share the pending result instead of sending another request
+public class SingleFlightTranslator extends Translator {
+
+    private final Translator delegate;
+    private final Map<List<Object>, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightTranslator(Translator delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    protected String translate(String text, Language source, Language target) throws TranslationException {
+        return delegate.translate(text, source, target);
+    }
+
+    @Override
+    protected List<String> translate(List<String> texts, Language source, Language target) throws TranslationException {
+        return delegate.translate(texts, source, target);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> translateAsync(List<String> texts, Language source, Language target, Executor executor) {
+        return delegate.translateAsync(texts, source, target, executor);
+    }
+
+    @Override
+    public CompletableFuture<String> translateAsync(String text, Language source, Language target, Executor executor) {
+        // keyed by executor too, an urgent request must not wait behind a flight of a lower priority
+        List<Object> key = Arrays.asList(new TranslationKey(getName(), source, target, text), executor);
+
+        while (true) {
+            Flight created = new Flight(key);
+            Flight flight = inFlight.putIfAbsent(key, created);
+            if (flight == null) {
+                flight = created;
+                created.start(delegate.translateAsync(text, source, target, executor));
+            }
+
+            CompletableFuture<String> waiter = flight.join();
+            if (waiter != null) return waiter;
+            // its last waiter just cancelled it, start over
+            inFlight.remove(key, flight);
+        }
+    }
+
+    @Override
+    public boolean allowMultiLines() {
+        return delegate.allowMultiLines();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    // one request and everyone waiting for it, the request is cancelled when the last of them cancels
+    private class Flight {
+        private final List<Object> key;
+        private final CompletableFuture<String> shared = new CompletableFuture<>();
+        private CompletableFuture<String> request = null; // guarded by this
+        private int waiters = 0; // guarded by this
+        private boolean abandoned = false; // guarded by this
+
+        private Flight(List<Object> key) {
+            this.key = key;
+        }
+
+        private void start(CompletableFuture<String> request) {
+            boolean cancelled;
+            synchronized (this) {
+                this.request = request;
+                cancelled = abandoned;
+            }
+            if (cancelled) request.cancel(true);
+            request.whenComplete((result, error) -> {
+                inFlight.remove(key, this);
+                if (error != null) shared.completeExceptionally(Futures.unwrap(error));
+                else shared.complete(result);
+            });
+        }
+
+        // every caller gets its own dependent future, so one caller cancelling doesn't fail the others
+        private CompletableFuture<String> join() {
+            CompletableFuture<String> waiter;
+            synchronized (this) {
+                if (abandoned) return null;
+                waiters++;
+                waiter = shared.thenApply(result -> result);
+            }
+            waiter.whenComplete((result, error) -> {
+                if (waiter.isCancelled()) leave();
+            });
+            return waiter;
+        }
+
+        private void leave() {
+            CompletableFuture<String> request;
+            synchronized (this) {
+                if (--waiters > 0 || shared.isDone()) return;
+                abandoned = true;
+                request = this.request;
+            }
+            inFlight.remove(key, this);
+            if (request != null) request.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package translation;
+
+import extension.Language;
+
+import java.util.regex.Pattern;
+
+// decides locally that a line doesn't need a round trip to the translator
+public class SkipFilter {
+
+    private static final Pattern URL = Pattern.compile("^(https?://|www\\.)\\S+$", Pattern.CASE_INSENSITIVE);
+    private static final double MIN_CONFIDENCE = 0.5;
+    // a single stopword ("da", "ne", "se") exists in too many languages to act on
+    private static final double MIN_SCORE = 4;
+
+    private SkipFilter() { }
+
+    public static boolean shouldSkip(String text, Language target) {
+        if (isTrivial(text)) return true;
+        LanguageDetector.Detection detection = LanguageDetector.detect(text.trim());
+        return isConclusive(detection) && detection.getLanguage() == target;
+    }
+
+    // lines with nothing a translator could change
+    public static boolean isTrivial(String text) {
+        String trimmed = text.trim();
+
+        if (trimmed.codePointCount(0, trimmed.length()) <= 1) return true;
+        if (trimmed.startsWith(":")) return true; // hotel commands like :sit or :about
+        if (!hasLetters(trimmed)) return true;    // numbers, emoji, punctuation
+        return URL.matcher(trimmed).matches();
+    }
+
+    // language of the text, or null unless the detector is reasonably sure
+    public static Language detect(String text) {
+        LanguageDetector.Detection detection = LanguageDetector.detect(text.trim());
+        return isConclusive(detection) ? detection.getLanguage() : null;
+    }
+
+    private static boolean isConclusive(LanguageDetector.Detection detection) {
+        return detection != null && detection.getConfidence() >= MIN_CONFIDENCE && detection.getScore() >= MIN_SCORE;
+    }
+
+    private static boolean hasLetters(String text) {
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetter(codePoint)) return true;
+            i += Character.charCount(codePoint);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,208 @@
+package translation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// timelines of the last N intercepted packets in a preallocated ring, to explain a single slow message after the fact
+// trace id 0 means "not traced", every call is a no-op for it
+public class Tracer {
+
+    public enum Event { INTERCEPT, CACHE_HIT, CACHE_MISS, QUEUED, HTTP_START, HTTP_END, REWRITE, RESEND, PASS_THROUGH, LATE }
+
+    private static final Event[] EVENTS = Event.values();
+    private static final int MAX_EVENTS = 16;
+    private static final long[] NONE = new long[0];
+    private static final long DUMP_INTERVAL_MILLIS = 30000;
+
+    private static volatile Slot[] slots = null; // null while tracing is off
+    private static volatile long thresholdMillis = 0;
+    private static volatile File directory = new File("cache");
+
+    private static final AtomicLong ids = new AtomicLong();
+    private static final AtomicLong lastDump = new AtomicLong();
+    // traces the work on this thread belongs to, more than one for a batch
+    private static final ThreadLocal<long[]> current = new ThreadLocal<>();
+
+    public static synchronized void configure(boolean enabled, int capacity, long thresholdMillis, File directory) {
+        Tracer.thresholdMillis = thresholdMillis;
+        Tracer.directory = directory;
+        if (!enabled) {
+            slots = null;
+            return;
+        }
+
+        Slot[] slots = new Slot[Math.max(1, capacity)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        Tracer.slots = slots;
+    }
+
+    public static long begin(String handler) {
+        Slot[] slots = Tracer.slots;
+        if (slots == null) return 0;
+
+        long id = ids.incrementAndGet();
+        slots[(int) (id % slots.length)].reset(id, handler);
+        return id;
+    }
+
+    public static void record(long id, Event event) {
+        Slot slot = slot(id);
+        if (slot != null) slot.add(id, event);
+    }
+
+    // last event of a trace, writes the buffer to disk if the message took longer than the threshold
+    public static void finish(long id, Event event) {
+        Slot slot = slot(id);
+        if (slot == null) return;
+
+        slot.add(id, event);
+        long threshold = thresholdMillis;
+        if (threshold > 0 && slot.elapsedMillis(id) >= threshold) {
+            dumpInBackground();
+        }
+    }
+
+    // runs the action with the trace as the current one, so the translators can add to it
+    public static <T> T call(long id, Supplier<T> action) {
+        if (id == 0) return action.get();
+
+        long[] previous = enter(new long[] { id });
+        try {
+            return action.get();
+        } finally {
+            exit(previous);
+        }
+    }
+
+    static void record(Event event) {
+        long[] traces = current.get();
+        if (traces == null) return;
+        for (long id : traces) {
+            record(id, event);
+        }
+    }
+
+    static long[] current() {
+        long[] traces = current.get();
+        return traces == null ? NONE : traces;
+    }
+
+    static long[] enter(long[] traces) {
+        long[] previous = current.get();
+        current.set(traces.length == 0 ? null : traces);
+        return previous;
+    }
+
+    static void exit(long[] previous) {
+        current.set(previous);
+    }
+
+    static long[] join(long[] a, long[] b) {
+        if (b.length == 0) return a;
+        if (a.length == 0) return b;
+        long[] joined = new long[a.length + b.length];
+        System.arraycopy(a, 0, joined, 0, a.length);
+        System.arraycopy(b, 0, joined, a.length, b.length);
+        return joined;
+    }
+
+    // writes every trace in the buffer to cache/traces-<time>.log, null when tracing is off
+    public static File dump() throws IOException {
+        Slot[] slots = Tracer.slots;
+        if (slots == null) return null;
+
+        File dir = directory;
+        if (!dir.exists() && !dir.mkdirs()) throw new IOException("couldn't create " + dir);
+        File file = new File(dir, "traces-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".log");
+
+        long last = ids.get();
+        StringBuilder sb = new StringBuilder();
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            // oldest first
+            for (long id = Math.max(1, last - slots.length + 1); id <= last; id++) {
+                sb.setLength(0);
+                if (slots[(int) (id % slots.length)].appendTo(id, sb)) {
+                    writer.write(sb.append('\n').toString());
+                }
+            }
+        }
+        return file;
+    }
+
+    private static void dumpInBackground() {
+        long now = System.currentTimeMillis();
+        long previous = lastDump.get();
+        if (now - previous < DUMP_INTERVAL_MILLIS || !lastDump.compareAndSet(previous, now)) return;
+
+        Thread thread = new Thread(() -> {
+            try {
+                File file = dump();
+                if (file != null) System.out.println("slow message, traces written to " + file);
+            } catch (IOException e) {
+                System.out.println("couldn't write traces: " + e.getMessage());
+            }
+        }, "trace-dump");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static Slot slot(long id) {
+        Slot[] slots = Tracer.slots;
+        if (id == 0 || slots == null) return null;
+        return slots[(int) (id % slots.length)];
+    }
+
+    // reused for every trace that lands on it, a trace that was overwritten just stops recording
+    private static class Slot {
+        private final byte[] events = new byte[MAX_EVENTS];
+        private final long[] offsets = new long[MAX_EVENTS];
+        private long id = 0;
+        private String handler;
+        private long startNanos;
+        private long startMillis;
+        private int count;
+
+        private synchronized void reset(long id, String handler) {
+            this.id = id;
+            this.handler = handler;
+            this.startNanos = System.nanoTime();
+            this.startMillis = System.currentTimeMillis();
+            events[0] = (byte) Event.INTERCEPT.ordinal();
+            offsets[0] = 0;
+            count = 1;
+        }
+
+        private synchronized void add(long id, Event event) {
+            if (this.id != id || count == MAX_EVENTS) return;
+            events[count] = (byte) event.ordinal();
+            offsets[count] = System.nanoTime() - startNanos;
+            count++;
+        }
+
+        private synchronized long elapsedMillis(long id) {
+            if (this.id != id) return 0;
+            return offsets[count - 1] / 1000000;
+        }
+
+        private synchronized boolean appendTo(long id, StringBuilder sb) {
+            if (this.id != id) return false;
+            sb.append('#').append(id).append(' ').append(handler)
+              .append(" at ").append(new SimpleDateFormat("HH:mm:ss.SSS").format(new Date(startMillis)))
+              .append(" took ").append(offsets[count - 1] / 1000000).append("ms:");
+            for (int i = 0; i < count; i++) {
+                sb.append(' ').append(EVENTS[events[i]]).append(" +").append(String.format("%.1f", offsets[i] / 1e6));
+            }
+            return true;
+        }
+    }
+}
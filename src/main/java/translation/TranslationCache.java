@@ -0,0 +1,115 @@
+package translation;
+
+import extension.Language;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// bounded LRU cache of finished translations, split in segments to keep lock contention low
+public class TranslationCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlMillis;
+    private volatile TranslationStore store = null;
+
+    public TranslationCache(int maxSize, long ttl, TimeUnit unit) {
+        int segmentSize = Math.max(1, maxSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+        this.ttlMillis = ttl <= 0 ? Long.MAX_VALUE : unit.toMillis(ttl);
+    }
+
+    public String get(String provider, Language source, Language target, String text) {
+        TranslationKey key = new TranslationKey(provider, source, target, text);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Cached cached = segment.get(key);
+            if (cached == null) return null;
+            if (System.currentTimeMillis() - cached.created > ttlMillis) {
+                segment.remove(key);
+                return null;
+            }
+            return cached.translation;
+        }
+    }
+
+    public void put(String provider, Language source, Language target, String text, String translation) {
+        if (text == null || translation == null) return;
+        long created = System.currentTimeMillis();
+        restore(provider, source, target, text, translation, created);
+
+        TranslationStore store = this.store;
+        if (store != null) store.append(provider, source, target, text, translation, created);
+    }
+
+    void restore(String provider, Language source, Language target, String text, String translation) {
+        restore(provider, source, target, text, translation, System.currentTimeMillis());
+    }
+
+    // put without writing through to the store, used when warming up from disk
+    // keeps the original creation time, so an entry doesn't get a fresh ttl on every launch
+    void restore(String provider, Language source, Language target, String text, String translation, long created) {
+        if (System.currentTimeMillis() - created > ttlMillis) return;
+
+        TranslationKey key = new TranslationKey(provider, source, target, text);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new Cached(translation, created));
+        }
+    }
+
+    public void attach(TranslationStore store) {
+        this.store = store;
+        store.loadAsync(this);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Segment segmentFor(TranslationKey key) {
+        return segments[(key.hashCode() & 0x7fffffff) % SEGMENTS];
+    }
+
+    private static class Segment extends LinkedHashMap<TranslationKey, Cached> {
+        private final int maxSize;
+
+        private Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TranslationKey, Cached> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    private static class Cached {
+        private final String translation;
+        private final long created;
+
+        private Cached(String translation, long created) {
+            this.translation = translation;
+            this.created = created;
+        }
+    }
+}
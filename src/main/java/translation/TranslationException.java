@@ -2,14 +2,54 @@ package translation;
 
 public class TranslationException extends Exception {
 
+    public static final int UNKNOWN = 0;
+    public static final int NETWORK_ERROR = -1;
+    public static final int UNAVAILABLE = -2; // provider skipped because its circuit breaker is open
+    public static final int REJECTED = -4; // never reached the provider, the executor was full or shut down
+
     private String reason;
+    private int code;
+    private long retryAfterMillis;
 
     public TranslationException(String reason) {
+        this(reason, UNKNOWN);
+    }
+
+    public TranslationException(String reason, int code) {
+        this(reason, code, -1);
+    }
+
+    public TranslationException(String reason, int code, long retryAfterMillis) {
         super();
         this.reason = reason;
+        this.code = code;
+        this.retryAfterMillis = retryAfterMillis;
     }
 
     public String getReason() {
         return reason;
     }
+
+    // http status code of the failed request, or one of the constants above
+    public int getCode() {
+        return code;
+    }
+
+    // from the Retry-After header, -1 if there was none
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    public boolean isRetryable() {
+        return code == NETWORK_ERROR || code == 429 || code >= 500;
+    }
+
+    public static long parseRetryAfter(String header) {
+        if (header == null) return -1;
+        try {
+            return Long.parseLong(header.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
 }
@@ -0,0 +1,257 @@
+package translation;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// shared worker pool for all translation jobs, replaces the old thread-per-call approach
+public class TranslationExecutor implements Executor {
+
+    public enum RejectionPolicy {
+        FAIL,           // report the job as failed to its callback
+        DISCARD_OLDEST, // fail the longest waiting job to make room for the new one
+        CALLER_RUNS     // run the job on the submitting (intercepting) thread
+    }
+
+    private static volatile int workers = 4;
+    private static volatile int queueSize = 256;
+    private static volatile boolean virtualThreads = false;
+    private static volatile RejectionPolicy rejectionPolicy = RejectionPolicy.FAIL;
+
+    private static TranslationExecutor shared = null;
+    private static ScheduledExecutorService timer = null;
+
+    public static synchronized void configure(int workers, int queueSize, boolean virtualThreads, RejectionPolicy policy) {
+        TranslationExecutor.workers = Math.max(1, workers);
+        TranslationExecutor.queueSize = Math.max(1, queueSize);
+        TranslationExecutor.virtualThreads = virtualThreads;
+        TranslationExecutor.rejectionPolicy = policy == null ? RejectionPolicy.FAIL : policy;
+        shutdown();
+    }
+
+    public static synchronized TranslationExecutor get() {
+        if (shared == null) {
+            shared = new TranslationExecutor();
+        }
+        return shared;
+    }
+
+    // single timer thread for short delays (batch windows, deadlines), never runs translation work itself
+    public static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+        return timer().schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService timer() {
+        if (timer == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "translator-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            timer = executor;
+        }
+        return timer;
+    }
+
+    // drops all queued jobs (their callbacks are notified), a new pool is created on the next submit
+    public static synchronized void shutdown() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+
+    private final ExecutorService pool;
+    private final Semaphore capacity;    // only used in virtual thread mode
+    private final Semaphore concurrency; // only used in virtual thread mode
+    private final Queue<Job> waiting;     // only used in virtual thread mode, oldest first
+    private final RejectionPolicy policy;
+
+    private TranslationExecutor() {
+        policy = rejectionPolicy;
+
+        ExecutorService virtual = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtual != null) {
+            pool = virtual;
+            capacity = new Semaphore(workers + queueSize);
+            concurrency = new Semaphore(workers);
+            waiting = new ConcurrentLinkedQueue<>();
+        }
+        else {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueSize),
+                    r -> {
+                        Thread thread = new Thread(r, "translator-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    this::rejected);
+            executor.allowCoreThreadTimeOut(true);
+            pool = executor;
+            capacity = null;
+            concurrency = null;
+            waiting = null;
+        }
+    }
+
+    // tasks implementing Rejectable are told when they get rejected or dropped
+    @Override
+    public void execute(Runnable task) {
+        submit(task, exception -> {
+            if (task instanceof Rejectable) ((Rejectable) task).rejected(exception);
+        });
+    }
+
+    public void submit(Runnable task, Consumer<TranslationException> onRejected) {
+        Job job = new Job(task, onRejected);
+
+        if (capacity == null) {
+            try {
+                pool.execute(job);
+            } catch (RejectedExecutionException e) {
+                job.reject();
+            }
+            return;
+        }
+
+        if (!capacity.tryAcquire()) {
+            if (policy == RejectionPolicy.CALLER_RUNS) job.run();
+            // the new job takes over the capacity permit of the one it replaced
+            else if (policy == RejectionPolicy.DISCARD_OLDEST && discardOldest()) startVirtual(job);
+            else job.reject();
+            return;
+        }
+        startVirtual(job);
+    }
+
+    // the caller holds a capacity permit for the job, which ends up released or handed to a replacement
+    private void startVirtual(Job job) {
+        waiting.add(job);
+        try {
+            pool.execute(() -> {
+                boolean ownsPermit = true;
+                try {
+                    concurrency.acquire();
+                    try {
+                        if (job.start()) {
+                            waiting.remove(job);
+                            job.run();
+                        }
+                        else {
+                            ownsPermit = false; // discarded while waiting
+                        }
+                    } finally {
+                        concurrency.release();
+                    }
+                } catch (InterruptedException e) {
+                    ownsPermit = job.discard();
+                    if (ownsPermit) {
+                        waiting.remove(job);
+                        job.reject();
+                    }
+                } finally {
+                    if (ownsPermit) capacity.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (job.discard()) {
+                waiting.remove(job);
+                capacity.release();
+                job.reject();
+            }
+        }
+    }
+
+    // fails the longest waiting job that hasn't started yet, true if there was one
+    private boolean discardOldest() {
+        Job oldest;
+        while ((oldest = waiting.poll()) != null) {
+            if (oldest.discard()) {
+                oldest.reject();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rejected(Runnable r, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            reject(r);
+            return;
+        }
+
+        switch (policy) {
+            case CALLER_RUNS:
+                r.run();
+                break;
+            case DISCARD_OLDEST:
+                Runnable oldest = executor.getQueue().poll();
+                if (oldest != null) reject(oldest);
+                executor.execute(r);
+                break;
+            default:
+                reject(r);
+        }
+    }
+
+    private void close() {
+        List<Runnable> pending = pool.shutdownNow();
+        for (Runnable r : pending) {
+            reject(r);
+        }
+    }
+
+    private static void reject(Runnable r) {
+        if (r instanceof Job) ((Job) r).reject();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is only available on Java 21+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public interface Rejectable {
+        void rejected(TranslationException exception);
+    }
+
+    private static class Job implements Runnable {
+        private static final int WAITING = 0, STARTED = 1, DISCARDED = 2;
+
+        private final Runnable task;
+        private final Consumer<TranslationException> onRejected;
+        private final AtomicInteger state = new AtomicInteger(WAITING); // only used in virtual thread mode
+
+        private Job(Runnable task, Consumer<TranslationException> onRejected) {
+            this.task = task;
+            this.onRejected = onRejected;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        private void reject() {
+            onRejected.accept(new TranslationException("Translation job was rejected", TranslationException.REJECTED));
+        }
+
+        private boolean start() {
+            return state.compareAndSet(WAITING, STARTED);
+        }
+
+        private boolean discard() {
+            return state.compareAndSet(WAITING, DISCARDED);
+        }
+    }
+}
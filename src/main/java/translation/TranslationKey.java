@@ -0,0 +1,49 @@
+package translation;
+
+import extension.Language;
+
+import java.util.Objects;
+
+// identifies one translation request: (provider, source, target, text)
+final class TranslationKey {
+
+    private final String provider;
+    private final Language source;
+    private final Language target;
+    private final String text;
+    private final int hash;
+
+    TranslationKey(String provider, Language source, Language target, String text) {
+        this.provider = provider;
+        this.source = source;
+        this.target = target;
+        this.text = text;
+        this.hash = Objects.hash(provider, source, target, text);
+    }
+
+    Language getSource() {
+        return source;
+    }
+
+    Language getTarget() {
+        return target;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TranslationKey)) return false;
+        TranslationKey key = (TranslationKey) o;
+        return source == key.source && target == key.target
+                && Objects.equals(provider, key.provider) && Objects.equals(text, key.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
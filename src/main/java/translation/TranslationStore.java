@@ -0,0 +1,180 @@
+package translation;
+
+import extension.Language;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// append-only log of translations so the cache survives restarts
+// record layout: [int length][int crc32][payload], a torn or corrupt tail is cut off on load
+// payload: provider, source, target, text, translation and the creation time (missing in older logs)
+public class TranslationStore {
+
+    private final File file;
+    private final int maxEntries;
+
+    private DataOutputStream out = null;
+    private List<byte[]> pending = new ArrayList<>(); // appends that arrive before loading finished
+    private volatile boolean loaded = false;
+
+    public TranslationStore(File dir, int maxEntries) {
+        this.file = new File(dir, "translations.log");
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    // replays the log into the cache on a background thread, so startup itself doesn't wait for the disk
+    public void loadAsync(TranslationCache cache) {
+        Thread thread = new Thread(() -> load(cache), "translation-store");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void append(String provider, Language source, Language target, String text, String translation, long created) {
+        byte[] record;
+        try {
+            record = encode(provider, source, target, text, translation, created);
+        } catch (IOException e) {
+            return; // too long for the log format, only kept in memory
+        }
+
+        if (!loaded) {
+            if (pending.size() < maxEntries) pending.add(record);
+            return;
+        }
+        if (out == null) return;
+
+        try {
+            out.write(record);
+            out.flush();
+        } catch (IOException e) {
+            closeQuietly();
+        }
+    }
+
+    private void load(TranslationCache cache) {
+        long validLength = 0;
+        int records = 0;
+
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+                byte[] payload;
+                while ((payload = readRecord(in)) != null) {
+                    validLength += 8 + payload.length;
+                    records++;
+                    restore(cache, payload);
+                }
+            } catch (IOException ignore) { }
+        }
+
+        synchronized (this) {
+            try {
+                if (records > maxEntries * 2) {
+                    compact(records - maxEntries);
+                }
+                else if (file.exists() && file.length() != validLength) {
+                    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                        raf.setLength(validLength);
+                    }
+                }
+
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                for (byte[] record : pending) {
+                    out.write(record);
+                }
+                out.flush();
+            } catch (IOException e) {
+                closeQuietly();
+            }
+            pending = null;
+            loaded = true;
+        }
+    }
+
+    // rewrites the log without its oldest records and swaps it in with an atomic rename, so a crash leaves either log intact
+    private void compact(int skip) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+             DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            byte[] payload;
+            int index = 0;
+            while ((payload = readRecord(in)) != null) {
+                if (index++ < skip) continue;
+                tmpOut.writeInt(payload.length);
+                tmpOut.writeInt(crc(payload));
+                tmpOut.write(payload);
+            }
+        }
+
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // returns null at the end of the log or at the first torn/corrupt record
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0 || length > (1 << 20)) return null;
+
+            int crc = in.readInt();
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            return crc(payload) == crc ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void restore(TranslationCache cache, byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String provider = in.readUTF();
+            Language source = Language.valueOf(in.readUTF());
+            Language target = Language.valueOf(in.readUTF());
+            String text = in.readUTF();
+            String translation = in.readUTF();
+            long created = in.available() >= 8 ? in.readLong() : System.currentTimeMillis();
+            cache.restore(provider, source, target, text, translation, created);
+        } catch (IOException | IllegalArgumentException ignore) { }
+    }
+
+    private static byte[] encode(String provider, Language source, Language target, String text, String translation, long created) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64 + text.length() + translation.length());
+        try (DataOutputStream data = new DataOutputStream(payload)) {
+            data.writeUTF(provider);
+            data.writeUTF(source.name());
+            data.writeUTF(target.name());
+            data.writeUTF(text);
+            data.writeUTF(translation);
+            data.writeLong(created);
+        }
+        byte[] bytes = payload.toByteArray();
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(8 + bytes.length);
+        try (DataOutputStream data = new DataOutputStream(record)) {
+            data.writeInt(bytes.length);
+            data.writeInt(crc(bytes));
+            data.write(bytes);
+        }
+        return record.toByteArray();
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try { out.close(); } catch (IOException ignore) { }
+            out = null;
+        }
+    }
+}
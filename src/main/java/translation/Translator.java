@@ -4,6 +4,8 @@ import extension.Language;
 import misc.MaybeConsumer;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public abstract class Translator {
 
@@ -12,26 +14,38 @@ public abstract class Translator {
 
     public abstract boolean allowMultiLines();
 
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    // translation that is available without any work, null when it would take a request
+    public String peek(String text, Language source, Language target) {
+        return null;
+    }
+
+    // the blocking provider call runs on the given executor, decorators override these to avoid or share that work
+    public CompletableFuture<String> translateAsync(String text, Language source, Language target, Executor executor) {
+        return Futures.supply(() -> translate(text, source, target), executor);
+    }
+
+    public CompletableFuture<List<String>> translateAsync(List<String> texts, Language source, Language target, Executor executor) {
+        return Futures.supply(() -> translate(texts, source, target), executor);
+    }
+
+    public CompletableFuture<String> translateAsync(String text, Language source, Language target) {
+        return translateAsync(text, source, target, TranslationExecutor.get());
+    }
+
+    public CompletableFuture<List<String>> translateAsync(List<String> texts, Language source, Language target) {
+        return translateAsync(texts, source, target, TranslationExecutor.get());
+    }
+
     public void translate(List<String> text, Language source, Language target, MaybeConsumer<List<String>, TranslationException> callback) {
-        new Thread(() -> {
-            try {
-                List<String> result = translate(text, source, target);
-                callback.accept(result);
-            } catch (TranslationException error) {
-                callback.except(error);
-            }
-        }).start();
+        translateAsync(text, source, target).whenComplete(Futures.toCallback(callback));
     }
 
     public void translate(String text, Language source, Language target, MaybeConsumer<String, TranslationException> callback) {
-        new Thread(() -> {
-            try {
-                String result = translate(text, source, target);
-                callback.accept(result);
-            } catch (TranslationException error) {
-                callback.except(error);
-            }
-        }).start();
+        translateAsync(text, source, target).whenComplete(Futures.toCallback(callback));
     }
 
 }
@@ -1,21 +1,193 @@
 package translation;
 
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Dispatcher;
+import com.squareup.okhttp.OkHttpClient;
 import extension.TranslatorExtension;
 import translation.translators.ArgosOpenTechTranslator;
 import translation.translators.MicrosoftTranslator;
 import translation.translators.DeepLTranslator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 public class TranslatorFactory {
 
+    // one client for all translators, so keep-alive connections and TLS sessions are reused between packets
+    private static final OkHttpClient httpClient = createHttpClient();
+
+    private static volatile TranslationCache cache = new TranslationCache(5000, 60, TimeUnit.MINUTES);
+    private static volatile long batchWindowMillis = 20;
+    private static volatile int batchMaxSize = 25;
+
+    private static volatile List<String> fallbackApis = Arrays.asList("deepl", "microsoft");
+    private static volatile int maxRetries = 2;
+    private static volatile int breakerThreshold = 5;
+    private static volatile long breakerCooldownMillis = 30000;
+
+    // api -> provider for the settings it was last built with, kept separately so circuit state outlives the chains
+    private static final Map<String, Instance> providers = new ConcurrentHashMap<>();
+    // api -> failover chain starting with that provider
+    private static final Map<String, Instance> instances = new ConcurrentHashMap<>();
+    // provider -> its own cache, single flight and batching, shared by every chain the provider is in
+    private static final Map<Translator, Translator> decorated = new ConcurrentHashMap<>();
+
+    private static volatile boolean hedging = false;
+    private static volatile String hedgeApi = "microsoft";
+    private static volatile int hedgePercentile = 90;
+    private static volatile HedgingTranslator hedger = null;
+
     public static Translator get(TranslatorExtension t) {
-        String api = t.getApi();
+        return get(t, t.getApi());
+    }
+
+    // translator for text the user is waiting on, hedged against a second provider when enabled
+    public static Translator getOutgoing(TranslatorExtension t) {
+        Translator primary = get(t);
+        if (!hedging || hedgeApi.equals(t.getApi())) return primary;
+
+        Translator secondary = get(t, hedgeApi);
+        HedgingTranslator current = hedger;
+        if (current == null || current.getPrimary() != primary || current.getSecondary() != secondary) {
+            current = new HedgingTranslator(primary, secondary, hedgePercentile);
+            hedger = current;
+        }
+        return current;
+    }
 
+    public static Translator get(TranslatorExtension t, String api) {
+        List<Translator> chain = new ArrayList<>();
+        chain.add(getProvider(t, api));
+        for (String fallback : fallbackApis) {
+            if (!fallback.equals(api) && isConfigured(t, fallback)) {
+                chain.add(getProvider(t, fallback));
+            }
+        }
+
+        Instance instance = instances.get(api);
+        if (instance == null || !instance.config.equals(chain)) {
+            // drop the chains of providers that were replaced since, e.g. after a key change
+            decorated.keySet().removeIf(provider -> providers.values().stream().noneMatch(current -> current.translator == provider));
+            List<Translator> decoratedChain = new ArrayList<>();
+            for (Translator provider : chain) {
+                decoratedChain.add(decorated.computeIfAbsent(provider, TranslatorFactory::decorate));
+            }
+            instance = new Instance(chain, decoratedChain.size() == 1 ? decoratedChain.get(0) : new FailoverTranslator(decoratedChain));
+            instances.put(api, instance);
+        }
+        return instance.translator;
+    }
+
+    private static Translator getProvider(TranslatorExtension t, String api) {
         if (api.equals("microsoft")) {
-            return new MicrosoftTranslator(t.getMicrosoftKey(), t.getMicrosoftRegion());
+            String key = t.getMicrosoftKey();
+            String region = t.getMicrosoftRegion();
+            String url = t.getMicrosoftUrl();
+            return getOrCreate(api, Arrays.asList(key, region, url), () -> new MicrosoftTranslator(httpClient, key, region, url));
         } else if (api.equals("deepl")) {
-            return new DeepLTranslator(t.getDeepLKey());
+            String key = t.getDeepLKey();
+            String url = t.getDeepLUrl();
+            return getOrCreate(api, Arrays.asList(key, url), () -> new DeepLTranslator(httpClient, key, url));
         } else {
-            return new ArgosOpenTechTranslator();
+            String url = t.getArgosUrl();
+            String key = t.getArgosKey();
+            return getOrCreate("argos", Arrays.asList(url, key), () -> new ArgosOpenTechTranslator(httpClient, url, key));
+        }
+    }
+
+    private static boolean isConfigured(TranslatorExtension t, String api) {
+        switch (api) {
+            case "microsoft": return !t.getMicrosoftKey().trim().isEmpty();
+            case "deepl": return !t.getDeepLKey().trim().isEmpty();
+            default: return true;
+        }
+    }
+
+    public static TranslationCache getCache() {
+        return cache;
+    }
+
+    public static void configureCache(int maxSize, long ttlMinutes) {
+        cache = new TranslationCache(maxSize, ttlMinutes, TimeUnit.MINUTES);
+        instances.clear();
+        decorated.clear();
+    }
+
+    public static void configureHedging(boolean enabled, String api, int percentile) {
+        hedging = enabled;
+        hedgeApi = api == null ? "microsoft" : api;
+        hedgePercentile = percentile;
+        hedger = null;
+    }
+
+    public static void configureResilience(List<String> fallbacks, int retries, int threshold, long cooldownMillis) {
+        List<String> apis = new ArrayList<>();
+        for (String api : fallbacks) {
+            if (!api.trim().isEmpty()) apis.add(api.trim().toLowerCase());
+        }
+        fallbackApis = apis;
+        maxRetries = retries;
+        breakerThreshold = threshold;
+        breakerCooldownMillis = cooldownMillis;
+        providers.clear();
+        instances.clear();
+        decorated.clear();
+    }
+
+    public static void configureBatching(long windowMillis, int maxSize) {
+        batchWindowMillis = windowMillis;
+        batchMaxSize = maxSize;
+        instances.clear();
+        decorated.clear();
+    }
+
+    private static Translator getOrCreate(String api, List<String> config, Creator creator) {
+        Instance instance = providers.get(api);
+        if (instance == null || !instance.config.equals(config)) {
+            Translator provider = new ResilientTranslator(new MeteredTranslator(creator.create()), new CircuitBreaker(breakerThreshold, breakerCooldownMillis), maxRetries);
+            instance = new Instance(config, provider);
+            providers.put(api, instance);
+        }
+        return instance.translator;
+    }
+
+    // failover -> (cache -> single flight -> batching -> retries -> metrics -> provider) for each provider in the chain
+    private static Translator decorate(Translator translator) {
+        translator = new BatchingTranslator(translator, batchWindowMillis, batchMaxSize);
+        translator = new SingleFlightTranslator(translator);
+        return new CachingTranslator(translator, cache);
+    }
+
+    private static OkHttpClient createHttpClient() {
+        OkHttpClient client = new OkHttpClient();
+        client.setConnectionPool(new ConnectionPool(8, TimeUnit.MINUTES.toMillis(5)));
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(64);
+        dispatcher.setMaxRequestsPerHost(16);
+        client.setDispatcher(dispatcher);
+
+        client.setConnectTimeout(10, TimeUnit.SECONDS);
+        client.setReadTimeout(20, TimeUnit.SECONDS);
+        client.setWriteTimeout(20, TimeUnit.SECONDS);
+        return client;
+    }
+
+    private interface Creator {
+        Translator create();
+    }
+
+    private static class Instance {
+        private final List<?> config;
+        private final Translator translator;
+
+        private Instance(List<?> config, Translator translator) {
+            this.config = config;
+            this.translator = translator;
         }
     }
 
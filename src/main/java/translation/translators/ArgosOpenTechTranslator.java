@@ -1,68 +1,112 @@
 package translation.translators;
 
+import com.squareup.okhttp.*;
 import extension.Language;
+import org.json.JSONArray;
 import org.json.JSONObject;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 import translation.TranslationException;
 import translation.Translator;
 
+import java.io.IOException;
 import java.util.*;
 
 
 // based on Andy / Tripical's code
+// speaks the LibreTranslate api, so it can also point at a self-hosted instance
 public class ArgosOpenTechTranslator extends Translator {
 
+    public static final String DEFAULT_URL = "https://translate.argosopentech.com";
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final int MAX_TEXTS_PER_REQUEST = 100;
+    private static final int MAX_CHARACTERS_PER_REQUEST = 20000;
+
     private Set<Language> supportedLanguages = new HashSet<>(Arrays.asList(Language.ENGLISH, Language.FRENCH,
             Language.GERMAN, Language.ITALIAN, Language.PORTUGUESE, Language.SPANISH, Language.TURKISH));
 
+    private final OkHttpClient client;
+    private final String baseUrl;
+    private final String apiKey;
+
+    public ArgosOpenTechTranslator(OkHttpClient client, String baseUrl, String apiKey) {
+        this.client = client;
+        String url = baseUrl == null || baseUrl.trim().isEmpty() ? DEFAULT_URL : baseUrl.trim();
+        this.baseUrl = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.apiKey = apiKey == null ? "" : apiKey.trim();
+    }
+
     @Override
     protected String translate(String text, Language source, Language target) throws TranslationException {
-        if (!supportedLanguages.contains(source)) {
-            throw new TranslationException("Source language is not supported");
-        }
-        else if (!supportedLanguages.contains(target)) {
-            throw new TranslationException("Target language is not supported");
+        return translate(Collections.singletonList(text), source, target).get(0);
+    }
+
+    @Override
+    protected List<String> translate(List<String> texts, Language source, Language target) throws TranslationException {
+        // a self-hosted instance may have more language models installed, let it decide
+        if (baseUrl.equals(DEFAULT_URL)) {
+            if (!supportedLanguages.contains(source)) {
+                throw new TranslationException("Source language is not supported");
+            }
+            else if (!supportedLanguages.contains(target)) {
+                throw new TranslationException("Target language is not supported");
+            }
         }
 
-        try {
-            Connection.Response response = Jsoup.connect("https://translate.argosopentech.com/translate")
-                    .data("q", text)
-                    .data("source", source.getLangCode())
-                    .data("target", target.getLangCode())
-                    .data("api_key", "")
-                    .userAgent("Mozilla")
-                    .header("Referer", "https://translate.argosopentech.com/")
-                    .header("Origin", "https://translate.argosopentech.com")
-                    .ignoreContentType(true)
-                    .method(Connection.Method.POST)
-                    .execute();
-
-            if (response.statusCode() == 200) {
-                JSONObject contents = new JSONObject(response.parse().text());
-                return contents.getString("translatedText");
+        List<int[]> chunks = ChunkedDispatch.split(texts, MAX_TEXTS_PER_REQUEST, MAX_CHARACTERS_PER_REQUEST, String::length);
+
+        return ChunkedDispatch.execute(client, texts, chunks, new ChunkedDispatch.ChunkCall() {
+            @Override
+            public Request request(List<String> chunk) {
+                return buildRequest(chunk, source, target);
             }
-            else {
-                throw new TranslationException("Translation failed with code: " + response.statusCode());
+
+            @Override
+            public List<String> read(Response response, int expected) throws TranslationException {
+                return readResponse(response, expected);
             }
+        });
+    }
 
-        } catch (Exception e) {
-            throw new TranslationException("Translation failed");
-        }
+    private Request buildRequest(List<String> texts, Language source, Language target) {
+        JSONObject body = new JSONObject();
+        body.put("q", new JSONArray(texts));
+        body.put("source", source.getLangCode());
+        body.put("target", target.getLangCode());
+        body.put("format", "text");
+        body.put("api_key", apiKey);
+
+        return new Request.Builder()
+                .url(baseUrl + "/translate")
+                .post(RequestBody.create(JSON, body.toString()))
+                .header("Referer", baseUrl + "/")
+                .header("Origin", baseUrl)
+                .build();
     }
 
-    @Override
-    protected List<String> translate(List<String> text, Language source, Language target) throws TranslationException {
-        List<String> results = new ArrayList<>();
-        for (String s : text) {
-            results.add(translate(s, source, target));
+    private List<String> readResponse(Response response, int expected) throws TranslationException {
+        if (response.code() != 200) {
+            long retryAfter = TranslationException.parseRetryAfter(response.header("Retry-After"));
+            try {
+                response.body().close();
+            } catch (IOException ignore) { }
+            throw new TranslationException("Translation failed with code: " + response.code(), response.code(), retryAfter);
         }
 
+        List<String> results;
+        try (ResponseBody body = response.body()) {
+            results = ResponseDecoder.libreTranslate(body.byteStream(), expected);
+        } catch (IOException e) {
+            throw new TranslationException("Translation failed");
+        }
+
+        if (results.size() != expected) {
+            throw new TranslationException("Translation returned " + results.size() + " results for " + expected + " texts");
+        }
         return results;
     }
 
     @Override
     public boolean allowMultiLines() {
-        return false;
+        return true;
     }
 }
@@ -0,0 +1,103 @@
+package translation.translators;
+
+import com.squareup.okhttp.*;
+import translation.PartialTranslationException;
+import translation.TranslationException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.ToIntFunction;
+
+// splits a list translation into requests that respect a provider's limits and sends them concurrently
+final class ChunkedDispatch {
+
+    interface ChunkCall {
+        Request request(List<String> chunk) throws TranslationException;
+        List<String> read(Response response, int expected) throws TranslationException;
+    }
+
+    private ChunkedDispatch() { }
+
+    // consecutive [from, to) ranges with at most maxCount items and maxCost total cost each
+    static List<int[]> split(List<String> texts, int maxCount, int maxCost, ToIntFunction<String> cost) {
+        List<int[]> chunks = new ArrayList<>();
+        int from = 0;
+        int total = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            int c = cost.applyAsInt(texts.get(i));
+            if (i > from && (i - from >= maxCount || total + c > maxCost)) {
+                chunks.add(new int[] {from, i});
+                from = i;
+                total = 0;
+            }
+            total += c;
+        }
+        if (from < texts.size() || texts.isEmpty()) {
+            chunks.add(new int[] {from, texts.size()});
+        }
+        return chunks;
+    }
+
+    // results come back in input order, failed chunks end up as per-item errors in a PartialTranslationException
+    // a single chunk is enqueued as well, a blocking execute() can't be stopped by interrupting the worker
+    static List<String> execute(OkHttpClient client, List<String> texts, List<int[]> chunks, ChunkCall call) throws TranslationException {
+        String[] results = new String[texts.size()];
+        TranslationException[] errors = new TranslationException[texts.size()];
+        CountDownLatch latch = new CountDownLatch(chunks.size());
+        List<Call> calls = new ArrayList<>();
+
+        for (int[] chunk : chunks) {
+            List<String> part = texts.subList(chunk[0], chunk[1]);
+            Call httpCall;
+            try {
+                httpCall = client.newCall(call.request(part));
+            } catch (TranslationException e) {
+                Arrays.fill(errors, chunk[0], chunk[1], e);
+                latch.countDown();
+                continue;
+            }
+            calls.add(httpCall);
+
+            httpCall.enqueue(new Callback() {
+                @Override
+                public void onFailure(Request request, IOException e) {
+                    Arrays.fill(errors, chunk[0], chunk[1], new TranslationException("Request failed: " + e.getMessage(), TranslationException.NETWORK_ERROR));
+                    latch.countDown();
+                }
+
+                @Override
+                public void onResponse(Response response) {
+                    try {
+                        List<String> translated = call.read(response, part.size());
+                        for (int i = 0; i < translated.size(); i++) {
+                            results[chunk[0] + i] = translated.get(i);
+                        }
+                    } catch (TranslationException e) {
+                        Arrays.fill(errors, chunk[0], chunk[1], e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            for (Call httpCall : calls) httpCall.cancel();
+            Thread.currentThread().interrupt();
+            throw new TranslationException("Translation was interrupted");
+        }
+
+        int failed = 0;
+        for (TranslationException error : errors) {
+            if (error != null) failed++;
+        }
+        if (failed == 0) return Arrays.asList(results);
+        if (failed == texts.size()) throw errors[0];
+        throw new PartialTranslationException(Arrays.asList(results), Arrays.asList(errors));
+    }
+}
@@ -2,8 +2,7 @@ package translation.translators;
 
 import com.squareup.okhttp.*;
 import extension.Language;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import translation.PartialTranslationException;
 import translation.TranslationException;
 import translation.Translator;
 
@@ -12,14 +11,34 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DeepLTranslator extends Translator {
 
 	// https://developers.deepl.com/docs/getting-started/intro
+    private static final String FREE_HOST = "https://api-free.deepl.com";
+    private static final String PRO_HOST = "https://api.deepl.com";
+    private static final int MAX_TEXTS_PER_REQUEST = 50;
+    private static final int MAX_REQUEST_BYTES = 128 * 1024;
+
+    // api key -> host that accepted it, so a key is only probed against the wrong endpoint once
+    private static final Map<String, String> workingHosts = new ConcurrentHashMap<>();
+
+    private final OkHttpClient client;
     private final String apiKey;
+    private final String baseUrl; // null unless pointed somewhere other than the deepl hosts
 
-    public DeepLTranslator(String apiKey) {
+    public DeepLTranslator(OkHttpClient client, String apiKey) {
+        this(client, apiKey, null);
+    }
+
+    // baseUrl points the translator at a proxy or a local stand-in, null or empty for the real endpoints
+    public DeepLTranslator(OkHttpClient client, String apiKey, String baseUrl) {
+        this.client = client;
         this.apiKey = apiKey == null ? "" : apiKey.trim();
+        String url = baseUrl == null || baseUrl.trim().isEmpty() ? null : baseUrl.trim();
+        this.baseUrl = url != null && url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
     }
 
     @Override
@@ -44,25 +63,43 @@ public class DeepLTranslator extends Translator {
     if (targetCode == null) throw new TranslationException("target lang not supported by deepl");
         boolean includeSource = sourceCode != null;
 
-        String[] hosts = new String[] {"api-free.deepl.com", "api.deepl.com"};
-        TranslationException lastEx = null;
-        for (String host : hosts) {
-            try {
-                return doRequest(host, nonNullTexts, includeSource ? sourceCode : null, targetCode);
-            } catch (TranslationException e) {
-                lastEx = e;
-                String msg = e.getReason().toLowerCase();
-                if (!(msg.contains("auth") || msg.contains("quota") || msg.contains("403") || msg.contains("456"))) {
-                    break;
-                }
-            }
+        if (baseUrl != null) {
+            return doRequest(baseUrl, nonNullTexts, includeSource ? sourceCode : null, targetCode);
         }
-    throw lastEx != null ? lastEx : new TranslationException("deepl died for some mystery reason");
+
+        // free keys end with ":fx", the other endpoint answers 403 for them
+        String host = workingHosts.getOrDefault(apiKey, apiKey.endsWith(":fx") ? FREE_HOST : PRO_HOST);
+        try {
+            List<String> result = doRequest(host, nonNullTexts, includeSource ? sourceCode : null, targetCode);
+            workingHosts.putIfAbsent(apiKey, host);
+            return result;
+        } catch (TranslationException e) {
+            if (e instanceof PartialTranslationException || e.getCode() != 403 || workingHosts.containsKey(apiKey)) throw e;
+        }
+
+        String otherHost = host.equals(FREE_HOST) ? PRO_HOST : FREE_HOST;
+        List<String> result = doRequest(otherHost, nonNullTexts, includeSource ? sourceCode : null, targetCode);
+        workingHosts.put(apiKey, otherHost);
+        return result;
     }
 
     private List<String> doRequest(String host, List<String> texts, String source, String target) throws TranslationException {
-        OkHttpClient client = new OkHttpClient();
+        List<int[]> chunks = ChunkedDispatch.split(texts, MAX_TEXTS_PER_REQUEST, MAX_REQUEST_BYTES - 256, DeepLTranslator::encodedSize);
+
+        return ChunkedDispatch.execute(client, texts, chunks, new ChunkedDispatch.ChunkCall() {
+            @Override
+            public Request request(List<String> chunk) throws TranslationException {
+                return buildRequest(host, chunk, source, target);
+            }
 
+            @Override
+            public List<String> read(Response response, int expected) throws TranslationException {
+                return readResponse(response, expected);
+            }
+        });
+    }
+
+    private Request buildRequest(String host, List<String> texts, String source, String target) throws TranslationException {
         StringBuilder form = new StringBuilder();
         append(form, "auth_key", apiKey);
         for (String t : texts) {
@@ -72,50 +109,48 @@ public class DeepLTranslator extends Translator {
         if (source != null) append(form, "source_lang", source);
         append(form, "preserve_formatting", "1");
 
-        Request request = new Request.Builder()
-                .url("https://" + host + "/v2/translate")
+        return new Request.Builder()
+                .url(host + "/v2/translate")
                 .post(RequestBody.create(MediaType.parse("application/x-www-form-urlencoded"), form.toString()))
                 .addHeader("Content-Type", "application/x-www-form-urlencoded")
                 .build();
+    }
 
-        Response response;
-        try {
-            response = client.newCall(request).execute();
-        } catch (IOException e) {
-            throw new TranslationException("net went weird");
-        }
-
+    private List<String> readResponse(Response response, int expected) throws TranslationException {
         if (response.code() != 200) {
+            long retryAfter = TranslationException.parseRetryAfter(response.header("Retry-After"));
             try {
                 String errBody = response.body() != null ? response.body().string() : "";
-                throw new TranslationException("deepl said nope: " + response.code() + " - " + errBody);
+                throw new TranslationException("deepl said nope: " + response.code() + " - " + errBody, response.code(), retryAfter);
             } catch (IOException ignore) {
-                throw new TranslationException("deepl said nope: " + response.code());
+                throw new TranslationException("deepl said nope: " + response.code(), response.code(), retryAfter);
             }
         }
 
-        try {
-            String bodyStr = response.body().string();
-            JSONObject json = new JSONObject(bodyStr);
-            JSONArray arr = json.getJSONArray("translations");
-            if (arr.length() != texts.size()) {
-                List<String> fallback = new ArrayList<>();
-                for (int i = 0; i < arr.length(); i++) {
-                    fallback.add(arr.getJSONObject(i).getString("text"));
-                }
-                return fallback;
-            }
-            List<String> result = new ArrayList<>();
-            for (int i = 0; i < arr.length(); i++) {
-                result.add(arr.getJSONObject(i).getString("text"));
-            }
-            return result;
-        } catch (Exception e) {
+        List<String> result;
+        try (ResponseBody body = response.body()) {
+            result = ResponseDecoder.deepl(body.byteStream(), expected);
+        } catch (IOException e) {
             throw new TranslationException("couldn't make sense of deepl reply");
         }
+
+        // a shorter list can't be matched back to its texts, so don't pretend it can
+        if (result.size() != expected) {
+            throw new TranslationException("deepl sent " + result.size() + " translations for " + expected + " texts");
+        }
+        return result;
+    }
+
+    // bytes the text adds to the form body
+    static int encodedSize(String text) {
+        try {
+            return 6 + URLEncoder.encode(text, "UTF-8").length();
+        } catch (UnsupportedEncodingException e) {
+            return 6 + text.length() * 9;
+        }
     }
 
-    private void append(StringBuilder sb, String key, String value) throws TranslationException {
+    static void append(StringBuilder sb, String key, String value) throws TranslationException {
         if (sb.length() > 0) sb.append('&');
         try {
             sb.append(URLEncoder.encode(key, "UTF-8"))
@@ -8,19 +8,41 @@ import translation.TranslationException;
 import translation.Translator;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 public class MicrosoftTranslator extends Translator {
 
+    public static final String DEFAULT_URL = "https://api.cognitive.microsofttranslator.com";
+
     // https://docs.microsoft.com/en-us/azure/cognitive-services/translator/quickstart-translator?tabs=java
+    private static final MediaType JSON = MediaType.parse("application/json");
+    // https://learn.microsoft.com/en-us/azure/ai-services/translator/service-limits
+    private static final int MAX_ELEMENTS_PER_REQUEST = 1000;
+    private static final int MAX_CHARACTERS_PER_REQUEST = 50000;
+
+    private final OkHttpClient client;
     private final String subscriptionKey;
     private final String location;
+    private final HttpUrl baseUrl;
 
-    public MicrosoftTranslator(String subscriptionKey, String location) {
+    public MicrosoftTranslator(OkHttpClient client, String subscriptionKey, String location) {
+        this(client, subscriptionKey, location, null);
+    }
+
+    // baseUrl points the translator at a proxy or a local stand-in, null or empty for the real endpoint
+    // a url that doesn't parse is refused rather than quietly sending the traffic to azure
+    public MicrosoftTranslator(OkHttpClient client, String subscriptionKey, String location, String baseUrl) {
+        this.client = client;
         this.subscriptionKey = subscriptionKey;
         this.location = location;
+        if (baseUrl == null || baseUrl.trim().isEmpty()) {
+            this.baseUrl = HttpUrl.parse(DEFAULT_URL);
+        }
+        else {
+            this.baseUrl = HttpUrl.parse(baseUrl.trim());
+            if (this.baseUrl == null) throw new IllegalArgumentException("Invalid Microsoft translator url: " + baseUrl);
+        }
     }
 
     @Override
@@ -28,23 +50,31 @@ public class MicrosoftTranslator extends Translator {
         return translate(Collections.singletonList(text), source, target).get(0);
     }
 
-
-
     @Override
     protected List<String> translate(List<String> texts, Language source, Language target) throws TranslationException {
-        HttpUrl url = new HttpUrl.Builder()
-                .scheme("https")
-                .host("api.cognitive.microsofttranslator.com")
-                .addPathSegment("/translate")
+        HttpUrl url = baseUrl.newBuilder()
+                .addPathSegment("translate")
                 .addQueryParameter("api-version", "3.0")
                 .addQueryParameter("from", source.getLangCode())
                 .addQueryParameter("to", target.getLangCode())
                 .build();
 
-        OkHttpClient client = new OkHttpClient();
+        List<int[]> chunks = ChunkedDispatch.split(texts, MAX_ELEMENTS_PER_REQUEST, MAX_CHARACTERS_PER_REQUEST, String::length);
 
-        MediaType mediaType = MediaType.parse("application/json");
+        return ChunkedDispatch.execute(client, texts, chunks, new ChunkedDispatch.ChunkCall() {
+            @Override
+            public Request request(List<String> chunk) {
+                return buildRequest(url, chunk);
+            }
 
+            @Override
+            public List<String> read(Response response, int expected) throws TranslationException {
+                return readResponse(response, expected);
+            }
+        });
+    }
+
+    private Request buildRequest(HttpUrl url, List<String> texts) {
         JSONArray bodyContents = new JSONArray();
 
         for(String s : texts) {
@@ -53,37 +83,36 @@ public class MicrosoftTranslator extends Translator {
             bodyContents.put(translateText);
         }
 
-        RequestBody body = RequestBody.create(mediaType, bodyContents.toString(1));
-        Request request = new Request.Builder().url(url).post(body)
+        RequestBody body = RequestBody.create(JSON, bodyContents.toString());
+        return new Request.Builder().url(url).post(body)
                 .addHeader("Ocp-Apim-Subscription-Key", subscriptionKey)
                 .addHeader("Ocp-Apim-Subscription-Region", location)
                 .addHeader("Content-type", "application/json")
                 .build();
-        Response response;
-        try {
-            response = client.newCall(request).execute();
-        } catch (IOException e) {
-            throw new TranslationException("Something went wrong..");
-        }
+    }
+
+    private List<String> readResponse(Response response, int expected) throws TranslationException {
         if (response.code() != 200) {
+            long retryAfter = TranslationException.parseRetryAfter(response.header("Retry-After"));
             try {
                 String msg = response.body().string();
-                throw new TranslationException("Translation failed with code: " + response.code() + ", " + msg);
+                throw new TranslationException("Translation failed with code: " + response.code() + ", " + msg, response.code(), retryAfter);
             } catch (IOException ignore) {
             }
-            throw new TranslationException("Translation failed with code: " + response.code());
+            throw new TranslationException("Translation failed with code: " + response.code(), response.code(), retryAfter);
         }
 
-        try {
-            String result = response.body().string();
-            List<String> translations = new ArrayList<>();
-            for (int i = 0; i < texts.size(); i++) {
-                translations.add(new JSONArray(result).getJSONObject(i).getJSONArray("translations").getJSONObject(0).getString("text"));
-            }
-            return translations;
+        List<String> translations;
+        try (ResponseBody body = response.body()) {
+            translations = ResponseDecoder.microsoft(body.byteStream(), expected);
         } catch (IOException e) {
             throw new TranslationException("Something went wrong 2");
         }
+
+        if (translations.size() != expected) {
+            throw new TranslationException("Microsoft sent " + translations.size() + " translations for " + expected + " texts");
+        }
+        return translations;
     }
 
     @Override
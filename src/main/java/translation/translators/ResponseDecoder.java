@@ -0,0 +1,113 @@
+package translation.translators;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// pulls the translated strings straight out of the response stream, without building a json tree first
+final class ResponseDecoder {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private ResponseDecoder() { }
+
+    // {"translations": [{"detected_source_language": "EN", "text": "..."}, ...]}
+    static List<String> deepl(InputStream in, int expected) throws IOException {
+        List<String> results = new ArrayList<>(expected);
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("translations".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        results.add(readField(parser, "text"));
+                    }
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return results;
+    }
+
+    // [{"translations": [{"text": "...", "to": "nl"}]}, ...]
+    static List<String> microsoft(InputStream in, int expected) throws IOException {
+        List<String> results = new ArrayList<>(expected);
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String text = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("translations".equals(field) && value == JsonToken.START_ARRAY) {
+                        // one target language per request, so only the first entry matters
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            String translated = readField(parser, "text");
+                            if (text == null) text = translated;
+                        }
+                    }
+                    else {
+                        parser.skipChildren();
+                    }
+                }
+                if (text == null) throw new JsonParseException(parser, "translation without text");
+                results.add(text);
+            }
+        }
+        return results;
+    }
+
+    // {"translatedText": ["...", ...]} or {"translatedText": "..."} for a single q
+    static List<String> libreTranslate(InputStream in, int expected) throws IOException {
+        List<String> results = new ArrayList<>(expected);
+        try (JsonParser parser = FACTORY.createParser(in)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("translatedText".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                        results.add(parser.getText());
+                    }
+                }
+                else if ("translatedText".equals(field) && value == JsonToken.VALUE_STRING) {
+                    results.add(parser.getText());
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return results;
+    }
+
+    // reads the string value of one field of the current object and skips the rest of it
+    private static String readField(JsonParser parser, String name) throws IOException {
+        String result = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (name.equals(field) && value == JsonToken.VALUE_STRING) {
+                result = parser.getText();
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+        if (result == null) throw new JsonParseException(parser, "missing field " + name);
+        return result;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) throw new JsonParseException(parser, "expected " + expected + " but got " + actual);
+    }
+}